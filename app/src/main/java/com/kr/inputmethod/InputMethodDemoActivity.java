@@ -1,7 +1,6 @@
 package com.kr.inputmethod;
 
 import android.os.Bundle;
-import android.util.Log;
 import android.view.View;
 import android.widget.EditText;
 import android.widget.ImageView;
@@ -12,6 +11,8 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.viewpager.widget.ViewPager;
 
 import com.kr.banner.Banner;
+import com.kr.banner.BannerImageLoader;
+import com.kr.banner.BannerState;
 import com.kr.banner.IndicatorView;
 import com.kr.keyboard.CustomKeyboardManager;
 
@@ -37,11 +38,18 @@ public final class InputMethodDemoActivity extends AppCompatActivity {
         ViewPager container = findViewById(R.id.container);
         IndicatorView pi = findViewById(R.id.pi);
 
-        Banner banner = new Banner.Builder().setItems(resources).setViewPager(container).setImtemViewId(R.layout.item).setPageIndicator(pi).setBindViewListener(new Banner.BindViewListener() {
+        // 旋转等配置变化后继续使用解码过的图片和之前的 page，旧的 ImageView 销毁时已经释放，不会被加载器持有
+        BannerState bannerState = BannerState.of(this, "demo");
+        final BannerImageLoader imageLoader = bannerState.getImageLoader(this);
+        Banner banner = new Banner.Builder().setItems(resources).setState(bannerState).setViewPager(container).setImtemViewId(R.layout.item).setPageIndicator(pi).setLifecycleOwner(this).setBindViewListener(new Banner.BindViewListener() {
             @Override
             public void onBind(View view, int pos) {
-                Log.d("test","onBind:"+pos);
-                ((ImageView) view).setImageResource(resources.get(pos));
+                imageLoader.load((ImageView) view, resources.get(pos));
+            }
+        }).setPrefetchListener(new Banner.PrefetchListener() {
+            @Override
+            public void onPrefetch(int pos, int width, int height) {
+                imageLoader.prefetch(resources.get(pos), width, height);
             }
         }).build();
         banner.start();
@@ -0,0 +1,4 @@
+# ViewPagerBackend 通过反射替换 ViewPager 的 Scroller，实现自动翻页的固定滑动时长
+-keepclassmembers class androidx.viewpager.widget.ViewPager {
+    private android.widget.Scroller mScroller;
+}
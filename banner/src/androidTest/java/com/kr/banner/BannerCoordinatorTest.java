@@ -0,0 +1,87 @@
+package com.kr.banner;
+
+import android.app.Instrumentation;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.rule.ActivityTestRule;
+import androidx.viewpager.widget.ViewPager;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * 多个 Banner 共用一个加载器时，缓存和被淘汰但仍在显示的图片总共不超过设置的内存上限
+ */
+@RunWith(AndroidJUnit4.class)
+public class BannerCoordinatorTest {
+
+    private static final int STEPS = 12;
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    @Rule
+    public ActivityTestRule<CoordinatorTestActivity> mActivityRule =
+            new ActivityTestRule<>(CoordinatorTestActivity.class);
+
+    @Test
+    public void retainedBytesStayWithinBudget() throws InterruptedException {
+        final CoordinatorTestActivity activity = mActivityRule.getActivity();
+        final BannerImageLoader imageLoader = activity.getImageLoader();
+        assertEquals(CoordinatorTestActivity.BUDGET_BYTES, imageLoader.getMaxBytes());
+        awaitLoaded(imageLoader);
+        assertWithinBudget(imageLoader);
+
+        for (int step = 0; step < STEPS; step++) {
+            final int banner = step % CoordinatorTestActivity.BANNER_COUNT;
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    ViewPager viewPager = activity.getViewPager(banner);
+                    viewPager.setCurrentItem(viewPager.getCurrentItem() + 1, false);
+                }
+            });
+            awaitLoaded(imageLoader);
+            assertWithinBudget(imageLoader);
+        }
+    }
+
+    private static void assertWithinBudget(final BannerImageLoader imageLoader) {
+        final int[] bytes = new int[2];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                bytes[0] = imageLoader.getRetainedBytes();
+                bytes[1] = imageLoader.getDisplayedCount();
+            }
+        });
+        assertTrue("nothing displayed", bytes[1] > 0);
+        assertTrue("retained " + bytes[0] + " > budget " + imageLoader.getMaxBytes(),
+                bytes[0] <= imageLoader.getMaxBytes());
+    }
+
+    /**
+     * 等待所有在窗口中的 ImageView 拿到解码结果
+     */
+    private static void awaitLoaded(final BannerImageLoader imageLoader) throws InterruptedException {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        final int[] waiting = new int[1];
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        do {
+            instrumentation.waitForIdleSync();
+            instrumentation.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    waiting[0] = imageLoader.getWaitingViewCount();
+                }
+            });
+            if (waiting[0] == 0) {
+                return;
+            }
+            Thread.sleep(20);
+        } while (System.currentTimeMillis() < deadline);
+        fail(waiting[0] + " image views still waiting");
+    }
+}
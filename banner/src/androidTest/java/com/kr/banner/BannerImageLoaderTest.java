@@ -0,0 +1,79 @@
+package com.kr.banner;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.rule.ActivityTestRule;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * 加载器跨 Activity 保留时，销毁的 Activity 中的 ImageView 不能继续持有显示的 bitmap
+ */
+@RunWith(AndroidJUnit4.class)
+public class BannerImageLoaderTest {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    @Rule
+    public ActivityTestRule<ImageLoaderTestActivity> mActivityRule =
+            new ActivityTestRule<>(ImageLoaderTestActivity.class, false, false);
+
+    @Before
+    public void setUp() {
+        ImageLoaderTestActivity.sImageLoader = new BannerImageLoader(
+                InstrumentationRegistry.getInstrumentation().getTargetContext(), BannerImageLoader.defaultCacheSize());
+    }
+
+    @Test
+    public void destroyedActivityReleasesDisplayedBitmaps() throws InterruptedException {
+        int images = ImageLoaderTestActivity.IMAGES.length;
+        for (int round = 0; round < 3; round++) {
+            mActivityRule.launchActivity(null);
+            assertEquals(images, awaitDisplayedCount(images));
+
+            mActivityRule.finishActivity();
+            assertEquals(0, awaitDisplayedCount(0));
+            assertEquals(0, waitingViewCount());
+        }
+    }
+
+    /**
+     * 等待显示的 bitmap 数量变为 expected，超时时返回当前的数量
+     */
+    private static int awaitDisplayedCount(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        int count = displayedCount();
+        while (count != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            count = displayedCount();
+        }
+        return count;
+    }
+
+    private static int displayedCount() {
+        final int[] count = new int[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                count[0] = ImageLoaderTestActivity.sImageLoader.getDisplayedCount();
+            }
+        });
+        return count[0];
+    }
+
+    private static int waitingViewCount() {
+        final int[] count = new int[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                count[0] = ImageLoaderTestActivity.sImageLoader.getWaitingViewCount();
+            }
+        });
+        return count[0];
+    }
+}
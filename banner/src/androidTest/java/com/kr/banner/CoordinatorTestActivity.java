@@ -0,0 +1,73 @@
+package com.kr.banner;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+
+import androidx.viewpager.widget.ViewPager;
+
+import com.kr.banner.test.R;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 多个 Banner 通过同一个 {@link BannerCoordinator} 共用图片加载器，每个 Banner 高度不同，解码结果互不共用
+ */
+public class CoordinatorTestActivity extends Activity {
+
+    static final int BANNER_COUNT = 3;
+    // 测试图片 64x64 ARGB_8888
+    static final int IMAGE_BYTES = 64 * 64 * 4;
+    // 小于所有 Banner 的图片总数，翻页时一定会淘汰
+    static final int BUDGET_BYTES = 12 * IMAGE_BYTES;
+
+    private static final List<Integer> IMAGES = Arrays.asList(R.drawable.test_image_0, R.drawable.test_image_1,
+            R.drawable.test_image_2, R.drawable.test_image_3, R.drawable.test_image_4);
+
+    private BannerCoordinator mCoordinator;
+    private final ViewPager[] mViewPagers = new ViewPager[BANNER_COUNT];
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        mCoordinator = new BannerCoordinator(new BannerImageLoader(this, BUDGET_BYTES), 6);
+        final BannerImageLoader imageLoader = mCoordinator.getImageLoader();
+
+        LinearLayout root = new LinearLayout(this);
+        root.setOrientation(LinearLayout.VERTICAL);
+        for (int i = 0; i < BANNER_COUNT; i++) {
+            ViewPager viewPager = new ViewPager(this);
+            root.addView(viewPager, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, 60 + 10 * i));
+            mViewPagers[i] = viewPager;
+            Banner banner = new Banner.Builder()
+                    .setItems(IMAGES)
+                    .setViewPager(viewPager)
+                    .setImtemViewId(R.layout.test_image_page)
+                    .setOffscreenPageLimit(1)
+                    .setCoordinator(mCoordinator)
+                    .setBindViewListener(new Banner.BindViewListener() {
+                        @Override
+                        public void onBind(View view, int pos) {
+                            imageLoader.load((ImageView) view, IMAGES.get(pos));
+                        }
+                    })
+                    .build();
+            // 只初始化 adapter，由测试翻页
+            banner.start();
+            banner.stop();
+        }
+        setContentView(root);
+    }
+
+    BannerImageLoader getImageLoader() {
+        return mCoordinator.getImageLoader();
+    }
+
+    ViewPager getViewPager(int index) {
+        return mViewPagers[index];
+    }
+}
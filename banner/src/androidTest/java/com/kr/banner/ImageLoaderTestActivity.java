@@ -0,0 +1,34 @@
+package com.kr.banner;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+
+import com.kr.banner.test.R;
+
+/**
+ * 一组固定大小的 ImageView，使用测试提供的加载器加载图片，模拟重建时加载器保留、view 重新创建
+ */
+public class ImageLoaderTestActivity extends Activity {
+
+    static final int[] IMAGES = {R.drawable.test_image_0, R.drawable.test_image_1, R.drawable.test_image_2,
+            R.drawable.test_image_3, R.drawable.test_image_4};
+    static final int IMAGE_SIZE = 64;
+
+    // 跨 Activity 实例保留，与 BannerState 中的加载器相同
+    static BannerImageLoader sImageLoader;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        LinearLayout root = new LinearLayout(this);
+        root.setOrientation(LinearLayout.VERTICAL);
+        for (int resId : IMAGES) {
+            ImageView imageView = new ImageView(this);
+            root.addView(imageView, new LinearLayout.LayoutParams(IMAGE_SIZE, IMAGE_SIZE));
+            sImageLoader.load(imageView, resId);
+        }
+        setContentView(root);
+    }
+}
@@ -0,0 +1,165 @@
+package com.kr.banner;
+
+import android.os.Bundle;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.View;
+import android.view.WindowManager;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.rule.ActivityTestRule;
+import androidx.viewpager.widget.ViewPager;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 对比原来的页面动画和 {@link ScalePageTransformer} 在拖动过程中的帧间隔
+ * 通过 fakeDrag 在每一帧把 ViewPager 拖动固定距离，记录 Choreographer 的帧时间，
+ * 结果通过 instrumentation status 和 logcat 输出，超过 1.5 个刷新周期的帧记为掉帧
+ */
+@RunWith(AndroidJUnit4.class)
+public class PageTransformerBenchmark {
+
+    private static final String TAG = "PageTransformerBenchmark";
+    private static final int FRAMES_PER_PAGE = 30;
+    private static final int WARM_UP_PAGES = 4;
+    private static final int MEASURED_PAGES = 40;
+
+    @Rule
+    public ActivityTestRule<TransformerBenchmarkActivity> mActivityRule =
+            new ActivityTestRule<>(TransformerBenchmarkActivity.class);
+
+    @Test
+    public void compareFrameTimes() throws InterruptedException {
+        long[] legacy = measure(new LegacyTransformer(), false);
+        long[] scale = measure(new ScalePageTransformer(), true);
+
+        long refreshNanos = refreshIntervalNanos();
+        Bundle status = new Bundle();
+        report(status, "legacy", legacy, refreshNanos);
+        report(status, "scale", scale, refreshNanos);
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+
+        assertEquals(MEASURED_PAGES * FRAMES_PER_PAGE, legacy.length);
+        assertEquals(MEASURED_PAGES * FRAMES_PER_PAGE, scale.length);
+    }
+
+    /**
+     * @return 每一帧与上一帧的间隔，单位纳秒
+     */
+    private long[] measure(final ViewPager.PageTransformer transformer, final boolean attach) throws InterruptedException {
+        final ViewPager viewPager = mActivityRule.getActivity().getViewPager();
+        final long[] intervals = new long[MEASURED_PAGES * FRAMES_PER_PAGE];
+        final CountDownLatch done = new CountDownLatch(1);
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                if (attach) {
+                    ((ScalePageTransformer) transformer).attachTo(viewPager);
+                } else {
+                    viewPager.setPageTransformer(false, transformer);
+                }
+                viewPager.beginFakeDrag();
+                Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+                    private int mFrame;
+                    private long mLastFrameTime;
+
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        int measured = mFrame - WARM_UP_PAGES * FRAMES_PER_PAGE;
+                        if (measured > 0) {
+                            intervals[measured - 1] = frameTimeNanos - mLastFrameTime;
+                        }
+                        mLastFrameTime = frameTimeNanos;
+                        if (measured == intervals.length) {
+                            viewPager.endFakeDrag();
+                            done.countDown();
+                            return;
+                        }
+                        // 每页向左拖一个 page 的宽度，再拖回来，反复经过相邻 page 的整个动画区间
+                        float step = (float) pageWidth(viewPager) / FRAMES_PER_PAGE;
+                        boolean forward = (mFrame / FRAMES_PER_PAGE) % 2 == 0;
+                        viewPager.fakeDragBy(forward ? -step : step);
+                        mFrame++;
+                        Choreographer.getInstance().postFrameCallback(this);
+                    }
+                });
+            }
+        });
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        return intervals;
+    }
+
+    private static int pageWidth(ViewPager viewPager) {
+        return viewPager.getWidth() - viewPager.getPaddingLeft() - viewPager.getPaddingRight();
+    }
+
+    private long refreshIntervalNanos() {
+        WindowManager windowManager = mActivityRule.getActivity().getWindowManager();
+        Display display = windowManager.getDefaultDisplay();
+        float refreshRate = display.getRefreshRate();
+        return (long) (TimeUnit.SECONDS.toNanos(1) / (refreshRate > 0 ? refreshRate : 60f));
+    }
+
+    private static void report(Bundle status, String name, long[] intervals, long refreshNanos) {
+        long[] sorted = intervals.clone();
+        Arrays.sort(sorted);
+        long total = 0;
+        int janky = 0;
+        for (long interval : sorted) {
+            total += interval;
+            if (interval > refreshNanos * 3 / 2) {
+                janky++;
+            }
+        }
+        double meanMs = total / (double) sorted.length / 1e6;
+        double p50Ms = sorted[sorted.length / 2] / 1e6;
+        double p90Ms = sorted[sorted.length * 9 / 10] / 1e6;
+        double p99Ms = sorted[sorted.length * 99 / 100] / 1e6;
+
+        status.putDouble(name + "_mean_ms", meanMs);
+        status.putDouble(name + "_p50_ms", p50Ms);
+        status.putDouble(name + "_p90_ms", p90Ms);
+        status.putDouble(name + "_p99_ms", p99Ms);
+        status.putInt(name + "_janky_frames", janky);
+        Log.i(TAG, String.format("%s: frames=%d mean=%.2fms p50=%.2fms p90=%.2fms p99=%.2fms janky=%d",
+                name, sorted.length, meanMs, p50Ms, p90Ms, p99Ms, janky));
+    }
+
+    /**
+     * 修改前 Banner 默认使用的页面动画，作为对比基准
+     */
+    private static final class LegacyTransformer implements ViewPager.PageTransformer {
+        @Override
+        public void transformPage(@NonNull View page, float position) {
+            float SCALE_MAX = 0.8f;
+            float ALPHA_MAX = 0.5f;
+
+            float scale = (position < 0) ? ((1 - SCALE_MAX) * position + 1) : ((SCALE_MAX - 1) * position + 1);
+            float alpha = (position < 0) ? ((1 - ALPHA_MAX) * position + 1) : ((ALPHA_MAX - 1) * position + 1);
+            if (position < 0) {
+                page.setPivotX(page.getWidth());
+                page.setPivotY(page.getHeight() / 2f);
+            } else {
+                page.setPivotX(0f);
+                page.setPivotY(page.getHeight() / 2f);
+            }
+            page.setScaleX(scale);
+            page.setScaleY(scale);
+            page.setAlpha(Math.abs(alpha));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.kr.banner;
+
+import android.app.Activity;
+import android.graphics.Color;
+import android.os.Bundle;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.viewpager.widget.PagerAdapter;
+import androidx.viewpager.widget.ViewPager;
+
+/**
+ * 用于测量页面动画帧耗时的页面，布局与 demo 中的 Banner 相同：两侧露出相邻的 page
+ */
+public class TransformerBenchmarkActivity extends Activity {
+
+    private static final int[] COLORS = {0xFFE57373, 0xFF64B5F6, 0xFF81C784, 0xFFFFB74D, 0xFFBA68C8};
+
+    private ViewPager mViewPager;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        int margin = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 30, getResources().getDisplayMetrics());
+        int height = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 180, getResources().getDisplayMetrics());
+
+        mViewPager = new ViewPager(this);
+        mViewPager.setClipToPadding(false);
+        mViewPager.setPadding(margin, 0, margin, 0);
+        mViewPager.setOffscreenPageLimit(2);
+        mViewPager.setAdapter(new PagerAdapter() {
+            @Override
+            public int getCount() {
+                return Integer.MAX_VALUE;
+            }
+
+            @Override
+            public boolean isViewFromObject(@NonNull View view, @NonNull Object object) {
+                return view == object;
+            }
+
+            @NonNull
+            @Override
+            public Object instantiateItem(@NonNull ViewGroup container, int position) {
+                // 背景加文字，alpha 小于 1 时需要离屏合成
+                TextView page = new TextView(container.getContext());
+                page.setBackgroundColor(COLORS[position % COLORS.length]);
+                page.setTextColor(Color.WHITE);
+                page.setTextSize(TypedValue.COMPLEX_UNIT_SP, 32);
+                page.setGravity(Gravity.CENTER);
+                page.setText(String.valueOf(position % COLORS.length));
+                container.addView(page);
+                return page;
+            }
+
+            @Override
+            public void destroyItem(@NonNull ViewGroup container, int position, @NonNull Object object) {
+                container.removeView((View) object);
+            }
+        });
+        mViewPager.setCurrentItem(Integer.MAX_VALUE / 2 - Integer.MAX_VALUE / 2 % COLORS.length);
+
+        FrameLayout root = new FrameLayout(this);
+        root.addView(mViewPager, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, height));
+        setContentView(root);
+    }
+
+    ViewPager getViewPager() {
+        return mViewPager;
+    }
+}
@@ -1,27 +1,33 @@
 package com.kr.banner;
 
 import android.content.Context;
-import android.os.Handler;
-import android.util.Log;
-import android.view.LayoutInflater;
+import android.util.SparseIntArray;
 import android.view.View;
 import android.view.ViewGroup;
 
 import androidx.annotation.LayoutRes;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.viewpager.widget.PagerAdapter;
+import androidx.lifecycle.LifecycleOwner;
 import androidx.viewpager.widget.ViewPager;
+import androidx.viewpager2.widget.ViewPager2;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Banner 广告banner，支持页面动画，循环转动，指示器，自动播放
+ * 可以使用 ViewPager 或者 ViewPager2，通过 {@link #setItems} 更新数据时在后台比较，只重新绑定变化的 page
+ * 设置 {@link BannerState} 后配置变化重建时保留当前的 page 和数据
+ * 同一个页面上有多个 Banner 时可以通过 {@link BannerCoordinator} 共用 page 缓存和图片缓存
  */
 public final class Banner {
 
     private static final int DEFAULT_CHANGE_PAGE_TIME = 5 * 1000;
+    private static final int DEFAULT_OFFSCREEN_PAGE_LIMIT = 2;
+    // 在自动翻页前多久开始预加载下一页
+    private static final int PREFETCH_LEAD_TIME = 1000;
+    private static final int DEFAULT_SCROLL_DURATION = 500;
 
     private IndicatorView mIndicatorView;
 
@@ -29,22 +35,113 @@ public final class Banner {
 
     private int mItemViewId = -1;
     private Context mContext;
-    private ViewPager mViewPager;
+    private final PagerBackend mPager;
+    private final ItemDiffer mDiffer;
+    private boolean mInitialized;
+    private final BannerState mState;
 
     private ViewPager.PageTransformer mPageTransformer;
 
-    private final Handler mHandler = new Handler();
-
-    private final List<View> mCacheViews = new ArrayList<>();
+    private final PageRecycler mRecycler;
 
     private BindViewListener mBindViewListener;
+    private ItemViewTypeProvider mItemViewTypeProvider;
+    private PrefetchListener mPrefetchListener;
+    private int mOffscreenPageLimit;
 
     private int mNextPageTime;
+    private int mScrollDuration;
+
+    private final RotationScheduler mScheduler;
+
+    private final RotationScheduler.Callback mTask = new RotationScheduler.Callback() {
+        @Override
+        public void onPrefetch() {
+            if (mPrefetchListener != null) {
+                mPrefetchListener.onPrefetch((mPager.getCurrentItem() + 1) % mItems.size(),
+                        mPager.getPageWidth(), mPager.getPageHeight());
+            }
+        }
+
+        @Override
+        public void onAdvance() {
+            mPager.advance(mPager.getCurrentItem() + 1, mScrollDuration);
+        }
+    };
+
+    private final PagerBackend.Host mHost = new PagerBackend.Host() {
+        @Override
+        public int getItemLayout(int position) {
+            return mRecycler.layoutOf(itemViewTypeOf(position % mItems.size()));
+        }
+
+        @Override
+        public View createPage(ViewGroup parent, int layoutId) {
+            return mRecycler.create(mContext, parent, layoutId);
+        }
+
+        @Override
+        public View obtainPage(ViewGroup parent, int position) {
+            int pos = position % mItems.size();
+            View v = mRecycler.obtain(mContext, parent, mRecycler.layoutOf(itemViewTypeOf(pos)), pos);
+            bind(v, pos);
+            return v;
+        }
+
+        @Override
+        public boolean bindPage(View page, int position) {
+            int pos = position % mItems.size();
+            if (PageRecycler.getLayoutId(page) != mRecycler.layoutOf(itemViewTypeOf(pos))) {
+                return false;
+            }
+            bind(page, pos);
+            return true;
+        }
+
+        @Override
+        public void recyclePage(View page) {
+            mRecycler.recycle(page);
+        }
+
+        @Override
+        public void onPageScrolled(int position, float positionOffset) {
+            if (mIndicatorView != null) {
+                mIndicatorView.onPageScrolled(position % mItems.size(), positionOffset);
+            }
+        }
+
+        @Override
+        public void onPageScrollStateChanged(int state) {
+            switch (state) {
+                case ViewPager.SCROLL_STATE_IDLE:
+                    mScheduler.setInteracting(false);
+                    saveState();
+                    break;
+                case ViewPager.SCROLL_STATE_DRAGGING:
+                    mScheduler.setInteracting(true);
+                    break;
+                case ViewPager.SCROLL_STATE_SETTLING:
+                    break;
+            }
+        }
+    };
 
-    private final Runnable mTask = new Runnable() {
+    private final ItemDiffer.Callback mDiffCallback = new ItemDiffer.Callback() {
         @Override
-        public void run() {
-            mViewPager.setCurrentItem(mViewPager.getCurrentItem() + 1, true);
+        public void onDiffResult(List<?> newItems, int[] oldToNew, int[] oldToNewItem) {
+            int current = mPager.getCurrentItem();
+            // 比较期间可能已经自动翻页或者被拖动，按应用结果时正在显示的数据计算，避免跳回提交时的位置
+            int currentNew = ItemDiffer.mapPosition(oldToNewItem, current % mItems.size(), newItems.size());
+            mItems = newItems;
+            mRecycler.onItemsChanged(oldToNew);
+            // 保持显示更新前的同一条数据，page 位置只在当前这一轮内调整
+            int currentItem = current - current % newItems.size() + currentNew;
+            mPager.onItemsChanged(currentItem);
+            if (mIndicatorView != null) {
+                mIndicatorView.setCount(newItems.size());
+                mIndicatorView.onPageScrolled(currentNew, 0);
+            }
+            saveState();
         }
     };
 
@@ -52,133 +149,180 @@ public final class Banner {
         void onBind(View view, int pos);
     }
 
-    private Banner() {
+    /**
+     * 多种 item 布局时，根据数据位置返回 view type，view type 需要通过 {@link Builder#addItemViewType} 注册
+     */
+    public interface ItemViewTypeProvider {
+        int getItemViewType(int pos);
+    }
+
+    /**
+     * 自动翻页之前回调，用于预加载下一页的图片，例如调用 {@link BannerImageLoader#prefetch}
+     */
+    public interface PrefetchListener {
+        /**
+         * @param pos    下一页的数据位置
+         * @param width  page 的宽度
+         * @param height page 的高度
+         */
+        void onPrefetch(int pos, int width, int height);
     }
 
+    /**
+     * 用于 {@link #setItems} 比较新旧数据，默认两个方法都使用 equals
+     */
+    public interface ItemComparator {
+        /**
+         * @return 是否是同一条数据，例如 id 相同
+         */
+        boolean areItemsTheSame(Object oldItem, Object newItem);
+
+        /**
+         * @return 显示的内容是否相同，相同时不重新绑定
+         */
+        boolean areContentsTheSame(Object oldItem, Object newItem);
+    }
+
+    private static final ItemComparator DEFAULT_COMPARATOR = new ItemComparator() {
+        @Override
+        public boolean areItemsTheSame(Object oldItem, Object newItem) {
+            return oldItem == null ? newItem == null : oldItem.equals(newItem);
+        }
+
+        @Override
+        public boolean areContentsTheSame(Object oldItem, Object newItem) {
+            return areItemsTheSame(oldItem, newItem);
+        }
+    };
+
     private Banner(Builder builder) {
-        mItems = builder.mItems;
+        mState = builder.mState;
+        // 重建时使用保留的数据，其中可能包含重建前通过 setItems 更新的数据
+        mItems = mState != null && mState.getItems() != null ? mState.getItems() : new ArrayList<>(builder.mItems);
         mItemViewId = builder.mItemViewId;
         mPageTransformer = builder.mPageTransformer;
+        if (mPageTransformer == null) {
+            mPageTransformer = new ScalePageTransformer();
+        }
         mIndicatorView = builder.mIndicatorView;
-        mViewPager = builder.mViewPager;
+        mPager = builder.mViewPager2 != null
+                ? new ViewPager2Backend(builder.mViewPager2) : new ViewPagerBackend(builder.mViewPager);
+        mDiffer = new ItemDiffer(builder.mItemComparator != null ? builder.mItemComparator : DEFAULT_COMPARATOR);
         mBindViewListener = builder.mBindViewListener;
+        mItemViewTypeProvider = builder.mItemViewTypeProvider;
+        mPrefetchListener = builder.mPrefetchListener;
         mNextPageTime = builder.mNextPageTime;
+        mOffscreenPageLimit = builder.mOffscreenPageLimit;
+        mScrollDuration = builder.mScrollDuration;
 
         if (mNextPageTime == 0) {
             mNextPageTime = DEFAULT_CHANGE_PAGE_TIME;
         }
 
 
-        mContext = mViewPager.getContext();
+        mContext = mPager.getView().getContext();
+        if (builder.mCoordinator != null) {
+            mRecycler = new PageRecycler(builder.mCoordinator.getPagePool());
+            mPager.setPagePool(mRecycler.getPool());
+        } else {
+            // 同时存在的 page 最多为当前页加上两侧各 limit 页，离屏缓存再多留一个给即将滑入的 page
+            mRecycler = new PageRecycler(new PagePool(mOffscreenPageLimit * 2 + 2));
+        }
+        if (mItemViewId != 0) {
+            mRecycler.putLayout(0, mItemViewId);
+        }
+        for (int i = 0; i < builder.mItemViewTypes.size(); i++) {
+            mRecycler.putLayout(builder.mItemViewTypes.keyAt(i), builder.mItemViewTypes.valueAt(i));
+        }
         if (mIndicatorView != null) {
             mIndicatorView.setCount(mItems.size());
         }
 
+        mScheduler = new RotationScheduler(mPager.getView(), RotationClock.getDefault(), mNextPageTime,
+                mPrefetchListener != null ? PREFETCH_LEAD_TIME : 0, mTask);
+        if (builder.mLifecycleOwner != null) {
+            mScheduler.setLifecycle(builder.mLifecycleOwner.getLifecycle());
+        }
     }
 
     private void init() {
-        mCacheViews.clear();
-        for (int i = 0; i < 6; i++) {
-            mCacheViews.add(LayoutInflater.from(mContext).inflate(mItemViewId, null));
+        if (mInitialized) {
+            return;
         }
-        mViewPager.setAdapter(new PagerAdapter() {
-
-            @Override
-            public int getCount() {
-                return Integer.MAX_VALUE;
-            }
-
-            @Override
-            public boolean isViewFromObject(@NonNull View view, @NonNull Object object) {
-                return view == object;
-            }
+        mInitialized = true;
+        int currentItem = mState != null ? mState.getCurrentItem() : -1;
+        if (currentItem < 0) {
+            currentItem = PagerBackend.startItem(mItems.size());
+        }
+        mPager.setup(mHost, mOffscreenPageLimit, mPageTransformer, currentItem);
+        if (mIndicatorView != null) {
+            mIndicatorView.onPageScrolled(currentItem % mItems.size(), 0);
+        }
+        saveState();
+    }
 
-            @NonNull
-            @Override
-            public Object instantiateItem(@NonNull ViewGroup container, int position) {
-                int pos = position % mCacheViews.size();
-                Log.d("PagerAdapter", "add pos:" + pos);
-                View v = mCacheViews.get(pos);
-                container.addView(v);
-                if (mBindViewListener != null) {
-                    mBindViewListener.onBind(v, position % mItems.size());
-                }
-                return v;
-            }
+    private void saveState() {
+        if (mState != null) {
+            mState.setItems(mItems);
+            mState.setCurrentItem(mPager.getCurrentItem());
+        }
+    }
 
-            @Override
-            public void destroyItem(@NonNull ViewGroup container, int position, @NonNull Object object) {
-                int pos = position % mCacheViews.size();
-                Log.d("PagerAdapter", "remove pos:" + pos);
-                container.removeView((View) object);
-            }
-        });
-        mViewPager.setOffscreenPageLimit(2);
-        mViewPager.setCurrentItem(Integer.MAX_VALUE / 2 - Integer.MAX_VALUE / 2 % mCacheViews.size());
-        mViewPager.addOnPageChangeListener(new ViewPager.OnPageChangeListener() {
-            @Override
-            public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+    private int itemViewTypeOf(int pos) {
+        return mItemViewTypeProvider == null ? 0 : mItemViewTypeProvider.getItemViewType(pos);
+    }
 
+    /**
+     * 同一个数据位置的 view 再次出现时不需要重新绑定
+     */
+    private void bind(View v, int pos) {
+        if (mRecycler.getBoundPosition(v) != pos) {
+            if (mBindViewListener != null) {
+                mBindViewListener.onBind(v, pos);
             }
+            mRecycler.setBoundPosition(v, pos);
+        }
+    }
 
-            @Override
-            public void onPageSelected(int position) {
-
-                if (mIndicatorView != null) {
-                    mIndicatorView.moveTo(position % mItems.size());
-                }
-
+    /**
+     * 更新数据，在后台线程比较新旧数据，完成后只重新绑定内容变化的 page，当前显示的数据保持不变
+     * 需要在主线程调用，items 会被复制，之后修改 items 不会影响 Banner
+     *
+     * @param items 不能为空
+     */
+    public void setItems(@NonNull List<?> items) {
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("items can't be empty");
+        }
+        List<?> newItems = new ArrayList<>(items);
+        if (!mInitialized) {
+            mItems = newItems;
+            if (mState != null) {
+                mState.setItems(newItems);
             }
-
-            @Override
-            public void onPageScrollStateChanged(int state) {
-
-                switch (state) {
-                    case ViewPager.SCROLL_STATE_IDLE:
-                        mHandler.postDelayed(mTask, mNextPageTime);
-                        break;
-                    case ViewPager.SCROLL_STATE_DRAGGING:
-                        mHandler.removeCallbacks(mTask);
-                        break;
-                    case ViewPager.SCROLL_STATE_SETTLING:
-                        break;
-                }
-
+            mRecycler.invalidateBindings();
+            if (mIndicatorView != null) {
+                mIndicatorView.setCount(newItems.size());
             }
-        });
-
-        if (mPageTransformer == null) {
-            mViewPager.setPageTransformer(false, new ViewPager.PageTransformer() {
-                @Override
-                public void transformPage(@NonNull View page, float position) {
-                    float SCALE_MAX = 0.8f;
-                    float ALPHA_MAX = 0.5f;
-
-                    float scale = (position < 0) ? ((1 - SCALE_MAX) * position + 1) : ((SCALE_MAX - 1) * position + 1);
-                    float alpha = (position < 0) ? ((1 - ALPHA_MAX) * position + 1) : ((ALPHA_MAX - 1) * position + 1);
-                    //为了滑动过程中，page间距不变，这里做了处理
-                    if (position < 0) {
-                        page.setPivotX(page.getWidth());
-                        page.setPivotY(page.getHeight() / 2f);
-                    } else {
-                        page.setPivotX(0f);
-                        page.setPivotY(page.getHeight() / 2f);
-                    }
-                    page.setScaleX(scale);
-                    page.setScaleY(scale);
-                    page.setAlpha(Math.abs(alpha));
-                }
-            });
-        } else {
-            mViewPager.setPageTransformer(false, mPageTransformer);
+            return;
         }
-
-
+        mDiffer.submit(mItems, newItems, mDiffCallback);
     }
 
+    /**
+     * 开始自动翻页，view 不可见、从窗口移除或者 Lifecycle 停止时自动暂停，恢复后继续
+     */
     public void start() {
         init();
-        mHandler.postDelayed(mTask, mNextPageTime);
+        mScheduler.start();
+    }
+
+    /**
+     * 停止自动翻页并移除所有监听，不再使用 Banner 时调用
+     */
+    public void stop() {
+        mScheduler.stop();
+        mPager.cancelAdvance();
     }
 
 
@@ -186,13 +330,23 @@ public final class Banner {
 
         IndicatorView mIndicatorView;
         ViewPager mViewPager;
+        ViewPager2 mViewPager2;
+        ItemComparator mItemComparator;
 
         List<?> mItems;
 
         int mItemViewId;
+        final SparseIntArray mItemViewTypes = new SparseIntArray();
+        ItemViewTypeProvider mItemViewTypeProvider;
         ViewPager.PageTransformer mPageTransformer;
         BindViewListener mBindViewListener;
+        PrefetchListener mPrefetchListener;
+        LifecycleOwner mLifecycleOwner;
+        BannerState mState;
+        BannerCoordinator mCoordinator;
         int mNextPageTime;
+        int mScrollDuration = DEFAULT_SCROLL_DURATION;
+        int mOffscreenPageLimit = DEFAULT_OFFSCREEN_PAGE_LIMIT;
 
 
         public Builder setItems(@NonNull List<?> items) {
@@ -210,17 +364,88 @@ public final class Banner {
             return this;
         }
 
+        public Builder setPrefetchListener(@Nullable PrefetchListener prefetchListener) {
+            mPrefetchListener = prefetchListener;
+            return this;
+        }
+
+        /**
+         * 设置后 Lifecycle 停止时暂停自动翻页，销毁时自动 {@link Banner#stop()}
+         */
+        public Builder setLifecycleOwner(@Nullable LifecycleOwner lifecycleOwner) {
+            mLifecycleOwner = lifecycleOwner;
+            return this;
+        }
+
+        /**
+         * 设置保留的状态，例如 BannerState.of(activity, "banner")，配置变化重建后从之前的 page 继续显示
+         */
+        public Builder setState(@Nullable BannerState state) {
+            mState = state;
+            return this;
+        }
+
+        /**
+         * 与同一个页面上的其他 Banner 共用 page 缓存，布局相同的 page 可以互相复用
+         */
+        public Builder setCoordinator(@Nullable BannerCoordinator coordinator) {
+            mCoordinator = coordinator;
+            return this;
+        }
+
         public Builder setImtemViewId(@LayoutRes int itemViewId) {
             mItemViewId = itemViewId;
             return this;
         }
 
+        /**
+         * 注册一种 item 布局，配合 {@link #setItemViewTypeProvider} 使用
+         */
+        public Builder addItemViewType(int viewType, @LayoutRes int itemViewId) {
+            mItemViewTypes.put(viewType, itemViewId);
+            return this;
+        }
+
+        public Builder setItemViewTypeProvider(@Nullable ItemViewTypeProvider itemViewTypeProvider) {
+            mItemViewTypeProvider = itemViewTypeProvider;
+            return this;
+        }
+
+        /**
+         * 两侧预加载的 page 数量，同时决定回收池的大小
+         */
+        public Builder setOffscreenPageLimit(int limit) {
+            mOffscreenPageLimit = Math.max(1, limit);
+            return this;
+        }
+
         public Builder setViewPager(@NonNull ViewPager viewPager) {
             mViewPager = viewPager;
+            mViewPager2 = null;
+            return this;
+        }
+
+        /**
+         * 使用 ViewPager2 代替 ViewPager，item 布局的宽高需要是 match_parent
+         */
+        public Builder setViewPager2(@NonNull ViewPager2 viewPager) {
+            mViewPager2 = viewPager;
+            mViewPager = null;
+            return this;
+        }
+
+        /**
+         * 设置 {@link Banner#setItems} 比较新旧数据的方式，不设置时使用 equals
+         */
+        public Builder setItemComparator(@Nullable ItemComparator itemComparator) {
+            mItemComparator = itemComparator;
             return this;
         }
 
 
+        /**
+         * 不设置时使用 {@link ScalePageTransformer}
+         */
         public Builder setPageTransformer(@Nullable ViewPager.PageTransformer pageTransformer) {
             mPageTransformer = pageTransformer;
             return this;
@@ -231,15 +456,23 @@ public final class Banner {
             return this;
         }
 
+        /**
+         * 自动翻页的滑动时长，毫秒，默认 500，用户滑动时不受影响
+         */
+        public Builder setScrollDuration(int duration) {
+            mScrollDuration = Math.max(0, duration);
+            return this;
+        }
+
         public Banner build() {
 
             if (mItems == null) {
                 throw new NullPointerException("items can't be null");
             }
-            if (mItemViewId == -1) {
+            if (mItemViewId == 0 && mItemViewTypes.size() == 0) {
                 throw new NullPointerException("pls set item View");
             }
-            if (mViewPager == null) {
+            if (mViewPager == null && mViewPager2 == null) {
                 throw new NullPointerException("viewpager can't be null");
             }
 
@@ -0,0 +1,72 @@
+package com.kr.banner;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 同一个页面上多个 Banner 共用的资源，通过 {@link Banner.Builder#setCoordinator} 使用
+ * 1.布局相同的 page 共用一个离屏缓存，ViewPager2 共用一个 RecycledViewPool，每种布局最多缓存 maxPooledPages 个
+ * 2.共用一个 {@link BannerImageLoader}，解码后的图片（包括被淘汰但仍在显示的）总共占用的内存不超过它的缓存大小
+ * 3.所有 Banner 本来就共用一个翻页时钟，到期时间相近的 Banner 在同一帧中翻页
+ * page 的 view 依赖 Activity 的 Context，coordinator 只能在一个页面内使用，不能跨配置变化保留，
+ * 需要保留图片时可以使用 {@link BannerState#getImageLoader} 创建
+ * 只能在主线程使用
+ */
+public final class BannerCoordinator {
+
+    private static final int DEFAULT_MAX_POOLED_PAGES = 6;
+
+    private final PagePool mPagePool;
+    private final BannerImageLoader mImageLoader;
+
+    /**
+     * 使用 {@link BannerImageLoader#defaultCacheSize()} 大小的图片缓存
+     */
+    public BannerCoordinator(@NonNull Context context) {
+        this(new BannerImageLoader(context, BannerImageLoader.defaultCacheSize()), DEFAULT_MAX_POOLED_PAGES);
+    }
+
+    /**
+     * @param imageLoader    共用的图片加载器，它的缓存大小就是这个页面上 Banner 图片的内存上限
+     * @param maxPooledPages 每种布局最多缓存的离屏 page，应该不少于单个 Banner 两侧预加载的 page 数加 2
+     */
+    public BannerCoordinator(@NonNull BannerImageLoader imageLoader, int maxPooledPages) {
+        if (maxPooledPages < 1) {
+            throw new IllegalArgumentException("maxPooledPages must be positive: " + maxPooledPages);
+        }
+        mImageLoader = imageLoader;
+        mPagePool = new PagePool(maxPooledPages);
+    }
+
+    @NonNull
+    public BannerImageLoader getImageLoader() {
+        return mImageLoader;
+    }
+
+    /**
+     * 修改每种布局最多缓存的离屏 page，超出的部分立即丢弃
+     */
+    public void setMaxPooledPages(int maxPooledPages) {
+        if (maxPooledPages < 1) {
+            throw new IllegalArgumentException("maxPooledPages must be positive: " + maxPooledPages);
+        }
+        mPagePool.setMaxScrap(maxPooledPages);
+    }
+
+    /**
+     * 在 Activity 或 Application 的 onTrimMemory 中调用
+     * 界面不可见或者内存紧张时丢弃离屏的 page 和解码的图片，显示中的 page 不受影响
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            mPagePool.clear();
+            mImageLoader.clear();
+        }
+    }
+
+    PagePool getPagePool() {
+        return mPagePool;
+    }
+}
@@ -0,0 +1,437 @@
+package com.kr.banner;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.ImageView;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.collection.LruCache;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Banner 图片加载器
+ * 1.在后台线程解码，按 page 的实际尺寸采样
+ * 2.解码结果保存在限制了内存大小的 LRU 缓存中，被淘汰且没有显示的 bitmap 通过 inBitmap 复用
+ * 3.被淘汰但仍在显示的 bitmap 也计入内存上限，缓存只使用剩下的部分
+ * 4.ImageView 离开窗口（page 被回收、丢弃或者 Activity 销毁）时释放显示的 bitmap，重新进入窗口时从缓存恢复
+ * 5.支持在自动翻页前预加载下一页
+ * 除解码以外的方法都需要在主线程调用
+ */
+public final class BannerImageLoader {
+
+    private static final int DECODE_THREADS = 2;
+
+    private final Resources mResources;
+    private final int mMaxBytes;
+    private final LruCache<Long, Bitmap> mCache;
+    // 被淘汰、已经不再显示的 bitmap，解码线程从这里取出作为 inBitmap
+    private final HashSet<SoftReference<Bitmap>> mReusable = new HashSet<>();
+    // 正在显示的 bitmap 被显示的次数，只统计在窗口中的 ImageView
+    private final HashMap<Bitmap, Integer> mDisplayRefs = new HashMap<>();
+    // 不在缓存中但仍在显示的 bitmap 及其占用的内存，不再显示时才能复用
+    private final HashSet<Bitmap> mEvictedInUse = new HashSet<>();
+    private int mEvictedInUseBytes;
+    // 正在解码的图片，以及等待它的请求
+    private final HashMap<Long, ArrayList<Request>> mPending = new HashMap<>();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(DECODE_THREADS, new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable r) {
+            Thread thread = new Thread(r, "BannerImageLoader");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * 一个 ImageView 的加载状态，保存在 view 的 tag 中，加载器不持有离开窗口的 view
+     */
+    private final class Request implements ViewTreeObserver.OnPreDrawListener, View.OnAttachStateChangeListener {
+        final ImageView view;
+        @DrawableRes
+        int resId;
+        // 正在加载或者显示的图片，还没有测量时为 null
+        Long key;
+        // 正在显示并且持有显示次数的 bitmap
+        Bitmap bitmap;
+        // 等待测量时注册监听的 ViewTreeObserver，每个 view 最多注册一个
+        ViewTreeObserver layoutObserver;
+
+        Request(ImageView view) {
+            this.view = view;
+        }
+
+        @Override
+        public boolean onPreDraw() {
+            cancelLayoutWait(this);
+            if (view.getWidth() > 0 && view.getHeight() > 0) {
+                load(view, resId);
+            }
+            return true;
+        }
+
+        @Override
+        public void onViewAttachedToWindow(View v) {
+            if (resId != 0 && bitmap == null) {
+                load(view, resId);
+            }
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            release(this);
+        }
+    }
+
+    /**
+     * @param maxCacheBytes 解码后的 bitmap 最多占用的内存，包括已经被淘汰但仍在显示的 bitmap，
+     *                      可以使用 {@link #defaultCacheSize()}
+     */
+    public BannerImageLoader(Context context, int maxCacheBytes) {
+        mResources = context.getApplicationContext().getResources();
+        mMaxBytes = maxCacheBytes;
+        mCache = new LruCache<Long, Bitmap>(maxCacheBytes) {
+            @Override
+            protected int sizeOf(@NonNull Long key, @NonNull Bitmap value) {
+                return byteCountOf(value);
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, @NonNull Long key, @NonNull Bitmap oldValue, Bitmap newValue) {
+                if (mDisplayRefs.containsKey(oldValue)) {
+                    addEvictedInUse(oldValue);
+                } else {
+                    addReusable(oldValue);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return 进程最大内存的 1/8
+     */
+    public static int defaultCacheSize() {
+        return (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+    }
+
+    /**
+     * 加载图片到 ImageView，按 ImageView 的尺寸采样
+     * ImageView 还没有测量时等到下一次绘制前再加载，不在窗口中时等到进入窗口再加载
+     */
+    public void load(@NonNull ImageView view, @DrawableRes int resId) {
+        Request request = requestOf(view);
+        request.resId = resId;
+        int width = view.getWidth();
+        int height = view.getHeight();
+        if (view.getWindowToken() == null || width == 0 || height == 0) {
+            removePending(request);
+            request.key = null;
+            if (view.getWindowToken() != null && request.layoutObserver == null) {
+                request.layoutObserver = view.getViewTreeObserver();
+                request.layoutObserver.addOnPreDrawListener(request);
+            }
+            return;
+        }
+
+        Long key = keyOf(resId, width, height);
+        if (!key.equals(request.key)) {
+            removePending(request);
+            request.key = key;
+        }
+        Bitmap bitmap = mCache.get(key);
+        if (bitmap != null) {
+            display(request, bitmap);
+            return;
+        }
+        display(request, null);
+        enqueue(key, resId, width, height, request);
+    }
+
+    /**
+     * 预加载图片到缓存中，用于在自动翻页之前解码下一页
+     */
+    public void prefetch(@DrawableRes int resId, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        Long key = keyOf(resId, width, height);
+        if (mCache.get(key) == null) {
+            enqueue(key, resId, width, height, null);
+        }
+    }
+
+    /**
+     * 清空缓存，例如在 onTrimMemory 时调用
+     */
+    public void clear() {
+        mCache.evictAll();
+        synchronized (mReusable) {
+            mReusable.clear();
+        }
+    }
+
+    /**
+     * @return 内存上限
+     */
+    int getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    /**
+     * @return 缓存和被淘汰但仍在显示的 bitmap 占用的内存，可以复用的 bitmap 只有软引用，不计算在内
+     */
+    int getRetainedBytes() {
+        return mCache.size() + mEvictedInUseBytes;
+    }
+
+    /**
+     * @return 持有显示次数的 bitmap 数量，所有 ImageView 离开窗口后为 0
+     */
+    int getDisplayedCount() {
+        return mDisplayRefs.size();
+    }
+
+    /**
+     * @return 等待解码结果的 ImageView 数量，所有 ImageView 离开窗口后为 0
+     */
+    int getWaitingViewCount() {
+        int count = 0;
+        for (ArrayList<Request> waiting : mPending.values()) {
+            count += waiting.size();
+        }
+        return count;
+    }
+
+    private Request requestOf(ImageView view) {
+        Request request = (Request) view.getTag(R.id.banner_image_request);
+        if (request == null) {
+            request = new Request(view);
+            view.setTag(R.id.banner_image_request, request);
+            view.addOnAttachStateChangeListener(request);
+        }
+        return request;
+    }
+
+    /**
+     * view 离开窗口：取消等待，释放显示的 bitmap，保留 resId 用于重新进入窗口时恢复
+     */
+    private void release(Request request) {
+        cancelLayoutWait(request);
+        removePending(request);
+        request.key = null;
+        display(request, null);
+    }
+
+    private void cancelLayoutWait(Request request) {
+        if (request.layoutObserver != null) {
+            if (request.layoutObserver.isAlive()) {
+                request.layoutObserver.removeOnPreDrawListener(request);
+            }
+            request.layoutObserver = null;
+        }
+    }
+
+    private void removePending(Request request) {
+        if (request.key == null) {
+            return;
+        }
+        ArrayList<Request> waiting = mPending.get(request.key);
+        if (waiting != null) {
+            waiting.remove(request);
+        }
+    }
+
+    private void enqueue(final Long key, final int resId, final int width, final int height, Request request) {
+        ArrayList<Request> waiting = mPending.get(key);
+        if (waiting != null) {
+            if (request != null && !waiting.contains(request)) {
+                waiting.add(request);
+            }
+            return;
+        }
+        waiting = new ArrayList<>(2);
+        if (request != null) {
+            waiting.add(request);
+        }
+        mPending.put(key, waiting);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                final Bitmap bitmap = decode(resId, width, height);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver(key, bitmap);
+                    }
+                });
+            }
+        });
+    }
+
+    private void deliver(Long key, Bitmap bitmap) {
+        ArrayList<Request> waiting = mPending.remove(key);
+        if (bitmap == null) {
+            return;
+        }
+        // 先显示再放入缓存，放入时被淘汰也不会在显示中被当作 inBitmap 复用
+        if (waiting != null) {
+            for (Request request : waiting) {
+                if (key.equals(request.key)) {
+                    display(request, bitmap);
+                }
+            }
+        }
+        if (byteCountOf(bitmap) > mMaxBytes) {
+            // 超过上限的 bitmap 不缓存也不复用，只在显示时保留
+            if (mDisplayRefs.containsKey(bitmap)) {
+                addEvictedInUse(bitmap);
+            }
+        } else {
+            mCache.put(key, bitmap);
+        }
+        trimToBudget();
+    }
+
+    private void display(Request request, Bitmap bitmap) {
+        Bitmap old = request.bitmap;
+        if (old == bitmap) {
+            return;
+        }
+        request.view.setImageBitmap(bitmap);
+        request.bitmap = bitmap;
+        if (bitmap != null) {
+            Integer refs = mDisplayRefs.get(bitmap);
+            mDisplayRefs.put(bitmap, refs == null ? 1 : refs + 1);
+        }
+        if (old != null) {
+            Integer refs = mDisplayRefs.get(old);
+            if (refs == null || refs <= 1) {
+                mDisplayRefs.remove(old);
+                if (mEvictedInUse.remove(old)) {
+                    mEvictedInUseBytes -= byteCountOf(old);
+                    addReusable(old);
+                }
+            } else {
+                mDisplayRefs.put(old, refs - 1);
+            }
+        }
+    }
+
+    private void addEvictedInUse(Bitmap bitmap) {
+        if (mEvictedInUse.add(bitmap)) {
+            mEvictedInUseBytes += byteCountOf(bitmap);
+        }
+    }
+
+    /**
+     * 被淘汰但仍在显示的 bitmap 占用了一部分上限，缓存只能使用剩下的部分
+     * 淘汰显示中的 bitmap 不会减少总量，所以重复直到满足上限或者缓存为空
+     */
+    private void trimToBudget() {
+        while (mCache.size() > 0 && mCache.size() > mMaxBytes - mEvictedInUseBytes) {
+            mCache.trimToSize(Math.max(0, mMaxBytes - mEvictedInUseBytes));
+        }
+    }
+
+    private Bitmap decode(int resId, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false;
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(mResources, resId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, width, height);
+        options.inJustDecodeBounds = false;
+        options.inMutable = true;
+        options.inBitmap = takeReusable(options);
+        try {
+            return BitmapFactory.decodeResource(mResources, resId, options);
+        } catch (IllegalArgumentException e) {
+            // inBitmap 不满足解码要求时不复用
+            options.inBitmap = null;
+            return BitmapFactory.decodeResource(mResources, resId, options);
+        }
+    }
+
+    /**
+     * 计算不小于目标尺寸的最大 2 的幂采样率
+     */
+    static int calculateInSampleSize(int outWidth, int outHeight, int reqWidth, int reqHeight) {
+        int inSampleSize = 1;
+        if (outHeight > reqHeight || outWidth > reqWidth) {
+            int halfHeight = outHeight / 2;
+            int halfWidth = outWidth / 2;
+            while (halfHeight / inSampleSize >= reqHeight && halfWidth / inSampleSize >= reqWidth) {
+                inSampleSize *= 2;
+            }
+        }
+        return inSampleSize;
+    }
+
+    private void addReusable(Bitmap bitmap) {
+        if (bitmap.isMutable() && byteCountOf(bitmap) <= mMaxBytes) {
+            synchronized (mReusable) {
+                mReusable.add(new SoftReference<>(bitmap));
+            }
+        }
+    }
+
+    private Bitmap takeReusable(BitmapFactory.Options options) {
+        synchronized (mReusable) {
+            Iterator<SoftReference<Bitmap>> iterator = mReusable.iterator();
+            while (iterator.hasNext()) {
+                Bitmap candidate = iterator.next().get();
+                if (candidate == null || candidate.isRecycled()) {
+                    iterator.remove();
+                } else if (canUseForInBitmap(candidate, options)) {
+                    iterator.remove();
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean canUseForInBitmap(Bitmap candidate, BitmapFactory.Options options) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            int width = (options.outWidth + options.inSampleSize - 1) / options.inSampleSize;
+            int height = (options.outHeight + options.inSampleSize - 1) / options.inSampleSize;
+            return width * height * 4 <= candidate.getAllocationByteCount();
+        }
+        // 4.4 以前只能复用尺寸完全相同且没有采样的 bitmap
+        return candidate.getWidth() == options.outWidth
+                && candidate.getHeight() == options.outHeight
+                && options.inSampleSize == 1;
+    }
+
+    private static int byteCountOf(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getByteCount();
+    }
+
+    private static Long keyOf(int resId, int width, int height) {
+        return ((long) resId << 32) | ((long) (width & 0xFFFF) << 16) | (height & 0xFFFF);
+    }
+}
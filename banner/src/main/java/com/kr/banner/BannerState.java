@@ -0,0 +1,82 @@
+package com.kr.banner;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.lifecycle.ViewModelStoreOwner;
+
+import java.util.List;
+
+/**
+ * 在配置变化（旋转、深色模式切换）后保留的 Banner 状态，保存在 Activity 或 Fragment 的 ViewModelStore 中，
+ * 通过 {@link Banner.Builder#setState} 使用
+ * 1.重建后 Banner 从之前的 page 和数据继续显示，不再回到起始位置
+ * 2.{@link #getImageLoader} 持有的解码结果在重建后继续使用，所属页面真正销毁时才释放；
+ *   只保留缓存，旧 Activity 的 ImageView 离开窗口时已经释放了显示的 bitmap，加载器不持有它们
+ * page 的 view 依赖 Activity 的 Context，重建后仍然需要重新创建
+ */
+public final class BannerState extends ViewModel {
+
+    private static final ViewModelProvider.Factory FACTORY = new ViewModelProvider.Factory() {
+        @NonNull
+        @Override
+        public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
+            return modelClass.cast(new BannerState());
+        }
+    };
+
+    private int mCurrentItem = -1;
+    private List<?> mItems;
+    private BannerImageLoader mImageLoader;
+
+    private BannerState() {
+    }
+
+    /**
+     * @param key 同一个页面有多个 Banner 时用于区分
+     */
+    @NonNull
+    public static BannerState of(@NonNull ViewModelStoreOwner owner, @NonNull String key) {
+        return new ViewModelProvider(owner, FACTORY).get(BannerState.class.getName() + ':' + key, BannerState.class);
+    }
+
+    /**
+     * 获取保留的图片加载器，第一次调用时使用 {@link BannerImageLoader#defaultCacheSize()} 创建
+     * 加载器只使用 Application 的 Context，可以加载重建后的 ImageView
+     */
+    @NonNull
+    public BannerImageLoader getImageLoader(@NonNull Context context) {
+        if (mImageLoader == null) {
+            mImageLoader = new BannerImageLoader(context, BannerImageLoader.defaultCacheSize());
+        }
+        return mImageLoader;
+    }
+
+    /**
+     * @return 保存的 page 位置，没有时返回 -1
+     */
+    int getCurrentItem() {
+        return mCurrentItem;
+    }
+
+    void setCurrentItem(int currentItem) {
+        mCurrentItem = currentItem;
+    }
+
+    List<?> getItems() {
+        return mItems;
+    }
+
+    void setItems(List<?> items) {
+        mItems = items;
+    }
+
+    @Override
+    protected void onCleared() {
+        if (mImageLoader != null) {
+            mImageLoader.clear();
+        }
+    }
+}
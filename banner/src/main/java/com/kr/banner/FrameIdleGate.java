@@ -0,0 +1,137 @@
+package com.kr.banner;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import android.view.WindowManager;
+
+/**
+ * 自动翻页前等待主线程空闲，避免翻页动画和其他动画（例如键盘窗口弹出）同时进行
+ * 1.通过 Choreographer 的帧回调判断，连续 {@link #IDLE_FRAMES} 帧都按时到达才认为空闲，
+ *   帧间隔超过 1.5 倍刷新周期或者回调本身被推迟时重新计数
+ * 2.{@link #holdOff} 指定一段时间视为忙碌，例如窗口焦点变化后等待窗口动画结束
+ * 3.超过最长等待时间仍然忙碌时回调 {@link Callback#onTimeout}，由调用方决定何时重试
+ * API 16 以下没有 Choreographer，直接回调空闲
+ */
+final class FrameIdleGate {
+
+    static final int IDLE_FRAMES = 3;
+    private static final float JANK_FACTOR = 1.5f;
+
+    interface Callback {
+        void onIdle();
+
+        void onTimeout();
+    }
+
+    private final Callback mCallback;
+    private final long mFrameIntervalNanos;
+    private final long mMaxWaitNanos;
+
+    private boolean mWaiting;
+    private long mStartNanos;
+    private long mLastFrameNanos;
+    private int mIdleFrames;
+    // 在这个时间之前都视为忙碌，SystemClock.uptimeMillis
+    private long mBusyUntil;
+
+    private Object mFrameCallback;
+
+    /**
+     * @param maxWait 最长等待时间
+     */
+    FrameIdleGate(Context context, long maxWait, Callback callback) {
+        mCallback = callback;
+        mMaxWaitNanos = maxWait * 1000000L;
+        WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        float refreshRate = windowManager != null ? windowManager.getDefaultDisplay().getRefreshRate() : 0;
+        mFrameIntervalNanos = (long) (1000000000L / (refreshRate >= 10 ? refreshRate : 60));
+    }
+
+    /**
+     * 从现在开始的 duration 毫秒内视为忙碌
+     */
+    void holdOff(long duration) {
+        mBusyUntil = Math.max(mBusyUntil, SystemClock.uptimeMillis() + duration);
+    }
+
+    /**
+     * 开始等待，已经在等待时不做任何事
+     */
+    void await() {
+        if (mWaiting) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            mCallback.onIdle();
+            return;
+        }
+        mWaiting = true;
+        mStartNanos = 0;
+        mIdleFrames = 0;
+        postFrameCallback();
+    }
+
+    void cancel() {
+        if (!mWaiting) {
+            return;
+        }
+        mWaiting = false;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            removeFrameCallback();
+        }
+    }
+
+    boolean isWaiting() {
+        return mWaiting;
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        if (mFrameCallback == null) {
+            mFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    onFrame(frameTimeNanos);
+                }
+            };
+        }
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void removeFrameCallback() {
+        if (mFrameCallback != null) {
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+        }
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        if (!mWaiting) {
+            return;
+        }
+        if (mStartNanos == 0) {
+            mStartNanos = frameTimeNanos;
+        } else {
+            long interval = frameTimeNanos - mLastFrameNanos;
+            // 同一帧中前面的工作耗时过长时，回调会明显晚于这一帧的开始时间
+            long delay = System.nanoTime() - frameTimeNanos;
+            boolean busy = interval > mFrameIntervalNanos * JANK_FACTOR
+                    || delay > mFrameIntervalNanos / 2
+                    || SystemClock.uptimeMillis() < mBusyUntil;
+            mIdleFrames = busy ? 0 : mIdleFrames + 1;
+        }
+        mLastFrameNanos = frameTimeNanos;
+        if (mIdleFrames >= IDLE_FRAMES) {
+            mWaiting = false;
+            mCallback.onIdle();
+        } else if (frameTimeNanos - mStartNanos >= mMaxWaitNanos) {
+            mWaiting = false;
+            mCallback.onTimeout();
+        } else {
+            postFrameCallback();
+        }
+    }
+}
@@ -4,26 +4,62 @@ import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.RectF;
 import android.util.AttributeSet;
-import android.view.ViewGroup;
+import android.view.View;
 import android.view.animation.LinearInterpolator;
 
 import androidx.annotation.Nullable;
 
-public final class IndicatorView extends ViewGroup {
+/**
+ * Banner 指示器
+ * 1.支持条形、圆点、毛毛虫三种样式，通过 indicatorStyle 属性或者 {@link #setStyle} 设置
+ * 2.通过 {@link #onPageScrolled} 跟随手指实时移动，{@link #moveTo} 用于没有滑动过程的跳转
+ * 3.只使用基本类型保存状态，所有样式在绘制和动画过程中都不分配对象
+ * 4.数量超过 indicatorMaxVisible 时只绘制当前位置附近的一段，两端的圆点逐渐缩小，绘制开销与数量无关
+ */
+public final class IndicatorView extends View {
 
+    public static final int STYLE_BAR = 0;
+    public static final int STYLE_DOT = 1;
+    public static final int STYLE_WORM = 2;
+
+    private static final int ANIMATION_DURATION = 300;
+    // 圆点直径占每一格宽度的比例
+    private static final float DOT_FRACTION = 0.5f;
+    // 窗口模式下距离边缘多少格以内的圆点开始缩小
+    private static final float EDGE_SLOTS = 2f;
 
     private int mCount = 0;
     private int mCurrentPosition = 0;
+    private int mStyle = STYLE_BAR;
+    // 最多显示的格数，0 表示不限制
+    private int mMaxVisible;
+    // 窗口模式下第一格对应的位置，可以是小数，不限制时为 0
+    private float mWindowStart;
+    // xml 中设置的每一格宽度
     private float mIndicatorWidth;
+    // 实际绘制时每一格的宽度，宽度不够时等分
+    private float mSlotWidth;
     private Paint mPaint;
-    private ValueAnimator mAnime;
-    private float mIndicatorLeft = 0;
+    private Paint mInactivePaint;
+    private int mActiveAlpha;
+    private final RectF mRect = new RectF();
+
+    // 当前绘制的位置：mPosition 页向 mPosition + 1 页滑动了 mOffset
+    private int mPosition;
+    private float mOffset;
+
+    private final ValueAnimator mAnime = ValueAnimator.ofFloat(0f, 1f);
+    private float mAnimeFrom;
+    private float mAnimeTo;
 
 
     public IndicatorView(Context context) {
         super(context);
+        init(context, null);
     }
 
     public IndicatorView(Context context, @Nullable AttributeSet attrs) {
@@ -42,82 +78,280 @@ public final class IndicatorView extends ViewGroup {
         mCount = ta.getInteger(R.styleable.IndicatorView_count, 0);
         mIndicatorWidth = (int) ta.getDimension(R.styleable.IndicatorView_indicatorWidth, 30);
         mCurrentPosition = ta.getInteger(R.styleable.IndicatorView_defaultPosition, 0);
-        mPaint = new Paint();
+        mStyle = ta.getInt(R.styleable.IndicatorView_indicatorStyle, STYLE_BAR);
+        mMaxVisible = Math.max(0, ta.getInteger(R.styleable.IndicatorView_indicatorMaxVisible, 0));
+        mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
         mPaint.setColor(ta.getColor(R.styleable.IndicatorView_indicatorColor, getResources().getColor(R.color.white)));
         mPaint.setStyle(Paint.Style.FILL);
+        mActiveAlpha = mPaint.getAlpha();
+        mInactivePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mInactivePaint.setColor(ta.getColor(R.styleable.IndicatorView_indicatorInactiveColor, Color.argb(0x80, 0xFF, 0xFF, 0xFF)));
+        mInactivePaint.setStyle(Paint.Style.FILL);
         ta.recycle();
+        mPosition = mCurrentPosition;
+
+        mAnime.setDuration(ANIMATION_DURATION);
+        mAnime.setInterpolator(new LinearInterpolator());
+        mAnime.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                // getAnimatedFraction 返回基本类型，避免 getAnimatedValue 每帧装箱
+                setDrawPosition(mAnimeFrom + (mAnimeTo - mAnimeFrom) * animation.getAnimatedFraction());
+            }
+        });
     }
 
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        //默认大小为指示器宽度乘以显示的数量
+        int defaultWidth = (int) (visibleCount() * mIndicatorWidth) + getPaddingLeft() + getPaddingRight();
+        setMeasuredDimension(resolveSize(defaultWidth, widthMeasureSpec),
+                getDefaultSize(getSuggestedMinimumHeight(), heightMeasureSpec));
+    }
 
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateSlotWidth();
+    }
 
-        float result = 0;
-        int specMode = MeasureSpec.getMode(widthMeasureSpec);
-        int specSize = MeasureSpec.getSize(widthMeasureSpec);
-
-        float defaultWidth = mCount * mIndicatorWidth; //默认大小为指示器宽度乘以数量
-
-        switch (specMode) {
-            case MeasureSpec.UNSPECIFIED:
-                result = defaultWidth;
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mCount <= 0 || mSlotWidth <= 0) {
+            return;
+        }
+        int next = (mPosition + 1) % mCount;
+        switch (mStyle) {
+            case STYLE_DOT:
+                drawDots(canvas, next);
+                break;
+            case STYLE_WORM:
+                drawWorm(canvas, next);
                 break;
-            case MeasureSpec.AT_MOST:
-            case MeasureSpec.EXACTLY:
-                if (defaultWidth > specSize) {
-                    result = specSize;
-                    mIndicatorWidth = result / mCount;
-                }
-                result = defaultWidth;
+            default:
+                drawBar(canvas);
                 break;
         }
+    }
 
-        setMeasuredDimension((int) result,
-                getDefaultSize(getSuggestedMinimumHeight(), heightMeasureSpec));
+    private void drawBar(Canvas canvas) {
+        float left = getPaddingLeft() + (mPosition + mOffset - mWindowStart) * mSlotWidth;
+        float end = getPaddingLeft() + visibleCount() * mSlotWidth;
+        float top = getPaddingTop();
+        float bottom = getHeight() - getPaddingBottom();
+        canvas.drawRect(left, top, Math.min(left + mSlotWidth, end), bottom, mPaint);
+        if (left + mSlotWidth > end && !isWindowed()) {
+            // 从最后一页滑到第一页，超出的部分从头部出现
+            canvas.drawRect(getPaddingLeft(), top, getPaddingLeft() + left + mSlotWidth - end, bottom, mPaint);
+        }
     }
 
-    @Override
-    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-        mIndicatorLeft = mCurrentPosition * mIndicatorWidth;
+    private void drawDots(Canvas canvas, int next) {
+        float radius = dotDiameter() / 2;
+        float cy = dotCenterY();
+        drawInactiveDots(canvas, radius, cy);
+        // 当前页和下一页的圆点按滑动比例交叉淡入淡出
+        float x = slotCenterX(mPosition);
+        mPaint.setAlpha((int) (mActiveAlpha * (1 - mOffset)));
+        canvas.drawCircle(x, cy, radius * edgeScale(x), mPaint);
+        if (mOffset > 0) {
+            x = slotCenterX(next);
+            mPaint.setAlpha((int) (mActiveAlpha * mOffset));
+            canvas.drawCircle(x, cy, radius * edgeScale(x), mPaint);
+        }
+        mPaint.setAlpha(mActiveAlpha);
     }
 
-    @Override
-    protected void onDraw(Canvas canvas) {
-        canvas.drawRect(mIndicatorLeft,0f,mIndicatorLeft + mIndicatorWidth,  getHeight(),mPaint);
+    private void drawWorm(Canvas canvas, int next) {
+        float radius = dotDiameter() / 2;
+        float cy = dotCenterY();
+        drawInactiveDots(canvas, radius, cy);
+        // 前半段头部移动到下一页，后半段尾部跟上
+        float head = Math.min(1f, mOffset * 2);
+        float tail = Math.max(0f, mOffset * 2 - 1);
+        float headX = slotCenterX(mPosition) + (slotCenterX(next) - slotCenterX(mPosition)) * head;
+        float tailX = slotCenterX(mPosition) + (slotCenterX(next) - slotCenterX(mPosition)) * tail;
+        radius *= edgeScale((headX + tailX) / 2);
+        mRect.set(Math.min(headX, tailX) - radius, cy - radius, Math.max(headX, tailX) + radius, cy + radius);
+        if (isWindowed()) {
+            // 从最后一页滑到第一页时第一格在窗口外，不超出窗口绘制
+            mRect.left = Math.max(mRect.left, getPaddingLeft());
+            mRect.right = Math.min(mRect.right, getPaddingLeft() + visibleCount() * mSlotWidth);
+        }
+        canvas.drawRoundRect(mRect, radius, radius, mPaint);
+    }
+
+    /**
+     * 只绘制窗口内的圆点，窗口滑动时两端各有一个圆点部分可见，最多 visibleCount() + 1 个
+     */
+    private void drawInactiveDots(Canvas canvas, float radius, float cy) {
+        int first = (int) mWindowStart;
+        int last = Math.min(mCount - 1, first + visibleCount());
+        for (int i = first; i <= last; i++) {
+            float x = slotCenterX(i);
+            float scale = edgeScale(x);
+            if (scale > 0) {
+                canvas.drawCircle(x, cy, radius * scale, mInactivePaint);
+            }
+        }
+    }
+
+    private float slotCenterX(int slot) {
+        return getPaddingLeft() + (slot - mWindowStart + 0.5f) * mSlotWidth;
+    }
+
+    /**
+     * 窗口模式下，靠近边缘并且外侧还有未显示的圆点时，按到边缘的距离缩小
+     */
+    private float edgeScale(float x) {
+        if (!isWindowed()) {
+            return 1f;
+        }
+        float left = (x - getPaddingLeft()) / mSlotWidth;
+        float right = visibleCount() - left;
+        // 外侧隐藏的数量不足一格时按比例缩小，窗口滑到头时圆点逐渐恢复原大小
+        float hiddenLeft = Math.min(1f, mWindowStart);
+        float hiddenRight = Math.min(1f, mCount - visibleCount() - mWindowStart);
+        float scale = 1f;
+        if (left < EDGE_SLOTS) {
+            scale = Math.min(scale, 1 - hiddenLeft * (1 - Math.max(0f, left) / EDGE_SLOTS));
+        }
+        if (right < EDGE_SLOTS) {
+            scale = Math.min(scale, 1 - hiddenRight * (1 - Math.max(0f, right) / EDGE_SLOTS));
+        }
+        return scale;
+    }
+
+    private boolean isWindowed() {
+        return mMaxVisible > 0 && mCount > mMaxVisible;
+    }
+
+    private int visibleCount() {
+        return isWindowed() ? mMaxVisible : mCount;
+    }
+
+    /**
+     * 让当前位置尽量处于窗口中间，窗口不超出首尾
+     */
+    private void updateWindow() {
+        if (!isWindowed()) {
+            mWindowStart = 0;
+            return;
+        }
+        float start = mPosition + mOffset - (mMaxVisible - 1) / 2f;
+        mWindowStart = Math.max(0f, Math.min(mCount - mMaxVisible, start));
+    }
+
+    private float dotCenterY() {
+        return getPaddingTop() + (getHeight() - getPaddingTop() - getPaddingBottom()) / 2f;
+    }
+
+    private float dotDiameter() {
+        return Math.min(mSlotWidth * DOT_FRACTION, getHeight() - getPaddingTop() - getPaddingBottom());
+    }
+
+    private void updateSlotWidth() {
+        int contentWidth = getWidth() - getPaddingLeft() - getPaddingRight();
+        int visible = visibleCount();
+        mSlotWidth = visible > 0 ? Math.min(mIndicatorWidth, (float) contentWidth / visible) : 0;
+        updateWindow();
     }
 
     public void setCount(int count) {
         mCount = count;
+        if (mPosition >= count) {
+            mPosition = 0;
+            mOffset = 0;
+            mCurrentPosition = 0;
+        }
+        updateSlotWidth();
         requestLayout();
+        invalidate();
     }
 
+    /**
+     * 设置最多显示的格数，数量超过时只显示当前位置附近的一段
+     *
+     * @param maxVisible 0 表示不限制
+     */
+    public void setMaxVisible(int maxVisible) {
+        maxVisible = Math.max(0, maxVisible);
+        if (mMaxVisible != maxVisible) {
+            mMaxVisible = maxVisible;
+            updateSlotWidth();
+            requestLayout();
+            invalidate();
+        }
+    }
 
+    /**
+     * @param style {@link #STYLE_BAR}、{@link #STYLE_DOT} 或 {@link #STYLE_WORM}
+     */
+    public void setStyle(int style) {
+        if (mStyle != style) {
+            mStyle = style;
+            invalidate();
+        }
+    }
 
+    /**
+     * 跟随 ViewPager 的滑动，在 {@link androidx.viewpager.widget.ViewPager.OnPageChangeListener#onPageScrolled} 中调用
+     *
+     * @param position       当前页，已经对数量取余
+     * @param positionOffset 向下一页滑动的比例
+     */
+    public void onPageScrolled(int position, float positionOffset) {
+        if (position < 0 || position >= mCount) {
+            throw new IndexOutOfBoundsException("position: " + position + ", count: " + mCount);
+        }
+        if (mAnime.isRunning()) {
+            mAnime.cancel();
+        }
+        if (positionOffset == 0) {
+            mCurrentPosition = position;
+        }
+        setDrawPosition(position, positionOffset);
+    }
+
+    /**
+     * 以动画移动到指定位置，用于没有滑动过程的跳转
+     */
     public void moveTo(int pos) {
-        if (pos > mCount || pos < 0) {
+        if (pos >= mCount || pos < 0) {
             throw new IndexOutOfBoundsException("滑动的范围不能<0或者大于其范围");
         }
-        if(mAnime!= null && mAnime.isRunning()){
+        if (mAnime.isRunning()) {
             mAnime.cancel();
         }
-        mAnime= ValueAnimator.ofFloat(mIndicatorLeft, pos*mIndicatorWidth);
-        mAnime.setDuration(500);
-        mAnime.setInterpolator(new LinearInterpolator());
-        mAnime.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-            @Override
-            public void onAnimationUpdate(ValueAnimator animation) {
-                mIndicatorLeft = (float) animation.getAnimatedValue();
-                invalidate();
-            }
-        });
-        mAnime.start();
+        mAnimeFrom = mPosition + mOffset;
+        mAnimeTo = pos;
         mCurrentPosition = pos;
-
+        mAnime.start();
     }
 
+    private void setDrawPosition(float position) {
+        int floor = (int) position;
+        setDrawPosition(floor, position - floor);
+    }
 
+    private void setDrawPosition(int position, float offset) {
+        if (position == mPosition && offset == mOffset) {
+            return;
+        }
+        mPosition = position;
+        mOffset = offset;
+        updateWindow();
+        invalidate();
+    }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mAnime.isRunning()) {
+            mAnime.end();
+        }
+    }
 
 
 }
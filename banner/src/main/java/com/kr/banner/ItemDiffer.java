@@ -0,0 +1,132 @@
+package com.kr.banner;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 在后台线程比较新旧数据，结果回到主线程
+ * 连续提交多次时只应用最后一次的结果
+ */
+final class ItemDiffer {
+
+    interface Callback {
+        /**
+         * @param oldToNew     旧位置 -> 新位置，内容变化或者被删除时为 {@link PageRecycler#NO_POSITION}
+         * @param oldToNewItem 旧位置 -> 同一条数据的新位置，不考虑内容是否变化，被删除时为 {@link PageRecycler#NO_POSITION}，
+         *                     用 {@link #mapPosition} 计算应用结果时的当前数据
+         */
+        void onDiffResult(List<?> newItems, int[] oldToNew, int[] oldToNewItem);
+    }
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(@NonNull Runnable r) {
+            Thread thread = new Thread(r, "BannerDiffer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Banner.ItemComparator mComparator;
+    private volatile int mGeneration;
+
+    ItemDiffer(Banner.ItemComparator comparator) {
+        mComparator = comparator;
+    }
+
+    /**
+     * 只能在主线程调用，oldItems 和 newItems 在比较期间不能被修改
+     */
+    void submit(final List<?> oldItems, final List<?> newItems, final Callback callback) {
+        final int generation = ++mGeneration;
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                if (generation != mGeneration) {
+                    return;
+                }
+                final int[] oldToNew = new int[oldItems.size()];
+                final int[] oldToNewItem = new int[oldItems.size()];
+                diff(oldItems, newItems, oldToNew, oldToNewItem);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mGeneration) {
+                            callback.onDiffResult(newItems, oldToNew, oldToNewItem);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void diff(final List<?> oldItems, final List<?> newItems, int[] oldToNew, int[] oldToNewItem) {
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldItems.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newItems.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return mComparator.areItemsTheSame(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return mComparator.areContentsTheSame(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+            }
+        }, true);
+
+        for (int i = 0; i < oldToNew.length; i++) {
+            int newPosition = result.convertOldPositionToNew(i);
+            if (newPosition == DiffUtil.DiffResult.NO_POSITION) {
+                oldToNewItem[i] = PageRecycler.NO_POSITION;
+                oldToNew[i] = PageRecycler.NO_POSITION;
+                continue;
+            }
+            oldToNewItem[i] = newPosition;
+            oldToNew[i] = mComparator.areContentsTheSame(oldItems.get(i), newItems.get(newPosition))
+                    ? newPosition : PageRecycler.NO_POSITION;
+        }
+    }
+
+    /**
+     * 旧数据中的位置在新数据中的位置，被删除时取最接近的保留下来的数据（距离相同时取后面的），
+     * 全部被删除时取相同的位置
+     *
+     * @param oldToNewItem {@link Callback#onDiffResult} 中的 oldToNewItem
+     */
+    static int mapPosition(int[] oldToNewItem, int oldPosition, int newSize) {
+        int count = oldToNewItem.length;
+        if (oldPosition >= 0 && oldPosition < count) {
+            for (int distance = 0; distance < count; distance++) {
+                int after = oldPosition + distance;
+                if (after < count && oldToNewItem[after] != PageRecycler.NO_POSITION) {
+                    return oldToNewItem[after];
+                }
+                int before = oldPosition - distance;
+                if (before >= 0 && oldToNewItem[before] != PageRecycler.NO_POSITION) {
+                    return oldToNewItem[before];
+                }
+            }
+        }
+        return Math.max(0, Math.min(oldPosition, newSize - 1));
+    }
+}
@@ -0,0 +1,107 @@
+package com.kr.banner;
+
+import android.util.SparseArray;
+import android.view.View;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+
+/**
+ * 离屏 page 的缓存，按布局 id 区分，可以由同一个页面上的多个 Banner 共用，见 {@link BannerCoordinator}
+ * 1.每种布局最多缓存 maxScrap 个 view，超过时直接丢弃
+ * 2.取出时优先选择同一个 {@link PageRecycler} 上次绑定了相同数据位置的 view，这种情况不需要重新绑定
+ * 3.ViewPager2 使用 {@link #getRecycledViewPool}，RecyclerView 的 view type 就是布局 id
+ * 只能在主线程使用
+ */
+final class PagePool {
+
+    private final SparseArray<ArrayList<View>> mScrap = new SparseArray<>();
+    private int mMaxScrap;
+    private RecyclerView.RecycledViewPool mRecycledViewPool;
+
+    /**
+     * @param maxScrap 每种布局最多缓存的 view 数量
+     */
+    PagePool(int maxScrap) {
+        mMaxScrap = maxScrap;
+    }
+
+    void setMaxScrap(int maxScrap) {
+        mMaxScrap = maxScrap;
+        for (int i = 0; i < mScrap.size(); i++) {
+            ArrayList<View> scrap = mScrap.valueAt(i);
+            while (scrap.size() > maxScrap) {
+                scrap.remove(scrap.size() - 1);
+            }
+            if (mRecycledViewPool != null) {
+                mRecycledViewPool.setMaxRecycledViews(mScrap.keyAt(i), maxScrap);
+            }
+        }
+    }
+
+    /**
+     * 注册一种布局，ViewPager2 的缓存按布局设置上限
+     */
+    void addLayout(int layoutId) {
+        if (mScrap.get(layoutId) == null) {
+            mScrap.put(layoutId, new ArrayList<View>(mMaxScrap));
+            if (mRecycledViewPool != null) {
+                mRecycledViewPool.setMaxRecycledViews(layoutId, mMaxScrap);
+            }
+        }
+    }
+
+    /**
+     * @return 没有可复用的 view 时返回 null
+     */
+    View acquire(int layoutId, PageRecycler owner, int position) {
+        ArrayList<View> scrap = mScrap.get(layoutId);
+        if (scrap == null || scrap.isEmpty()) {
+            return null;
+        }
+        for (int i = scrap.size() - 1; i >= 0; i--) {
+            if (owner.getBoundPosition(scrap.get(i)) == position) {
+                return scrap.remove(i);
+            }
+        }
+        return scrap.remove(scrap.size() - 1);
+    }
+
+    void release(View view) {
+        int layoutId = PageRecycler.getLayoutId(view);
+        ArrayList<View> scrap = mScrap.get(layoutId);
+        if (scrap == null) {
+            scrap = new ArrayList<>(mMaxScrap);
+            mScrap.put(layoutId, scrap);
+        }
+        if (scrap.size() < mMaxScrap) {
+            scrap.add(view);
+        }
+    }
+
+    /**
+     * 共用的 RecyclerView 缓存，第一次调用时创建
+     */
+    RecyclerView.RecycledViewPool getRecycledViewPool() {
+        if (mRecycledViewPool == null) {
+            mRecycledViewPool = new RecyclerView.RecycledViewPool();
+            for (int i = 0; i < mScrap.size(); i++) {
+                mRecycledViewPool.setMaxRecycledViews(mScrap.keyAt(i), mMaxScrap);
+            }
+        }
+        return mRecycledViewPool;
+    }
+
+    /**
+     * 丢弃所有缓存的 view，显示中的 page 不受影响
+     */
+    void clear() {
+        for (int i = 0; i < mScrap.size(); i++) {
+            mScrap.valueAt(i).clear();
+        }
+        if (mRecycledViewPool != null) {
+            mRecycledViewPool.clear();
+        }
+    }
+}
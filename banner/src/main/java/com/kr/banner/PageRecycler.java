@@ -0,0 +1,137 @@
+package com.kr.banner;
+
+import android.content.Context;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Banner 的 page 回收池
+ * 1.离屏的 view 保存在 {@link PagePool} 中，按布局区分，同一个页面上的多个 Banner 可以共用一个 pool
+ * 2.优先复用上一次绑定了相同数据位置的 view，这种情况不需要重新绑定
+ * 3.只回收已经从 ViewPager 移除的 view，不会复用仍然显示中的 page
+ * 4.数据更新后不遍历 view，而是记录新旧位置的映射，读取 view 绑定的位置时再按映射转换，
+ * 内容没有变化的 page 换了位置也不需要重新绑定
+ * 5.view 上记录绑定它的 PageRecycler，来自其他 Banner 的 view 总是重新绑定
+ */
+final class PageRecycler {
+
+    static final int NO_POSITION = -1;
+
+    private final SparseIntArray mLayouts = new SparseIntArray();
+    private final PagePool mPool;
+    // 数据每更新一次加一，view 上记录绑定时的版本
+    private int mGeneration;
+    // 上一个版本的位置 -> 当前版本的位置，内容变化或者被删除时为 NO_POSITION
+    private int[] mOldToNew = new int[0];
+
+    PageRecycler(PagePool pool) {
+        mPool = pool;
+    }
+
+    PagePool getPool() {
+        return mPool;
+    }
+
+    void putLayout(int viewType, int layoutId) {
+        mLayouts.put(viewType, layoutId);
+        mPool.addLayout(layoutId);
+    }
+
+    /**
+     * @return view type 对应的布局 id
+     */
+    int layoutOf(int viewType) {
+        int layoutId = mLayouts.get(viewType, 0);
+        if (layoutId == 0) {
+            throw new IllegalStateException("no item layout for view type " + viewType);
+        }
+        return layoutId;
+    }
+
+    /**
+     * 创建一个新的 view，用于自己管理回收的 pager，例如 RecyclerView
+     */
+    View create(Context context, ViewGroup parent, int layoutId) {
+        View view = LayoutInflater.from(context).inflate(layoutId, parent, false);
+        view.setTag(R.id.banner_item_type, layoutId);
+        view.setTag(R.id.banner_item_position, NO_POSITION);
+        return view;
+    }
+
+    /**
+     * 获取一个可以显示 position 的 view，没有可复用的 view 时才 inflate
+     */
+    View obtain(Context context, ViewGroup parent, int layoutId, int position) {
+        View view = mPool.acquire(layoutId, this, position);
+        return view != null ? view : create(context, parent, layoutId);
+    }
+
+    /**
+     * 回收已经从父布局移除的 view
+     */
+    void recycle(View view) {
+        if (view.getParent() == null) {
+            mPool.release(view);
+        }
+    }
+
+    /**
+     * 数据更新后调用，包括显示中的 page 在内，所有 view 绑定的位置都按 oldToNew 转换
+     *
+     * @param oldToNew 旧位置 -> 新位置，内容变化或者被删除时为 {@link #NO_POSITION}
+     */
+    void onItemsChanged(int[] oldToNew) {
+        mOldToNew = oldToNew;
+        mGeneration++;
+    }
+
+    /**
+     * 数据全部变化后调用，所有 view 都需要重新绑定
+     */
+    void invalidateBindings() {
+        mOldToNew = new int[0];
+        mGeneration += 2;
+    }
+
+    /**
+     * @return view 的布局 id
+     */
+    static int getLayoutId(View view) {
+        Object layoutId = view.getTag(R.id.banner_item_type);
+        return layoutId == null ? 0 : (Integer) layoutId;
+    }
+
+    /**
+     * @return view 当前绑定的数据位置，需要重新绑定时返回 {@link #NO_POSITION}
+     */
+    int getBoundPosition(View view) {
+        if (view.getTag(R.id.banner_item_owner) != this) {
+            return NO_POSITION;
+        }
+        Object position = view.getTag(R.id.banner_item_position);
+        Object generation = view.getTag(R.id.banner_item_generation);
+        if (position == null || generation == null) {
+            return NO_POSITION;
+        }
+        int pos = (Integer) position;
+        int gen = (Integer) generation;
+        if (gen == mGeneration) {
+            return pos;
+        }
+        // 只保留最近一次更新的映射，更早绑定的 view 在上一次更新时没有被读取过，只能重新绑定
+        if (gen == mGeneration - 1 && pos >= 0 && pos < mOldToNew.length) {
+            pos = mOldToNew[pos];
+            setBoundPosition(view, pos);
+            return pos;
+        }
+        return NO_POSITION;
+    }
+
+    void setBoundPosition(View view, int position) {
+        view.setTag(R.id.banner_item_position, position);
+        view.setTag(R.id.banner_item_generation, mGeneration);
+        view.setTag(R.id.banner_item_owner, this);
+    }
+}
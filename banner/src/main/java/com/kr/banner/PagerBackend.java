@@ -0,0 +1,111 @@
+package com.kr.banner;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.viewpager.widget.ViewPager;
+
+/**
+ * Banner 使用的翻页控件，目前有 ViewPager 和 ViewPager2 两种实现
+ * 两种实现都通过 Integer.MAX_VALUE 个 page 实现循环，page 的位置都是 adapter 中的位置，
+ * 转换成数据位置、创建和绑定 page 都交给 {@link Host}
+ */
+abstract class PagerBackend {
+
+    /**
+     * 实现循环时 adapter 中的 page 数量
+     */
+    static final int PAGE_COUNT = Integer.MAX_VALUE;
+
+    interface Host {
+        /**
+         * @return page 使用的布局 id，不同布局的 page 不能互相复用
+         */
+        int getItemLayout(int position);
+
+        /**
+         * 创建一个 page，不绑定数据
+         */
+        View createPage(ViewGroup parent, int layoutId);
+
+        /**
+         * 获取并绑定一个 page，优先复用回收池中的 view
+         */
+        View obtainPage(ViewGroup parent, int position);
+
+        /**
+         * 让 page 显示 position 的数据，已经显示这个数据时不重新绑定
+         *
+         * @return page 的 view type 与 position 不一致，无法在原地绑定时返回 false
+         */
+        boolean bindPage(View page, int position);
+
+        void recyclePage(View page);
+
+        void onPageScrolled(int position, float positionOffset);
+
+        /**
+         * @param state {@link ViewPager#SCROLL_STATE_IDLE} 等，ViewPager2 的常量值相同
+         */
+        void onPageScrollStateChanged(int state);
+    }
+
+    /**
+     * @return 数据位置为 0 并且位于中间的 page 位置，两个方向都可以一直滑动
+     */
+    static int startItem(int itemCount) {
+        return PAGE_COUNT / 2 - PAGE_COUNT / 2 % itemCount;
+    }
+
+    abstract View getView();
+
+    abstract void setup(Host host, int offscreenPageLimit, ViewPager.PageTransformer transformer, int currentItem);
+
+    /**
+     * 使用共用的 page 缓存，需要在 {@link #setup} 之前调用，自己管理 page 的实现才需要处理
+     */
+    void setPagePool(PagePool pool) {
+    }
+
+    abstract int getCurrentItem();
+
+    abstract void setCurrentItem(int item, boolean smoothScroll);
+
+    /**
+     * 自动翻页，滑动使用固定时长，用户手势触发的滑动不受影响
+     *
+     * @param duration 滑动时长，毫秒
+     */
+    abstract void advance(int item, int duration);
+
+    /**
+     * 停止还没有完成的自动翻页滑动
+     */
+    void cancelAdvance() {
+    }
+
+    /**
+     * 自动翻页滑动使用的减速曲线，与 ViewPager 默认的相同
+     */
+    static float interpolate(float t) {
+        t -= 1.0f;
+        return t * t * t * t * t + 1.0f;
+    }
+
+    /**
+     * 数据更新后调用，只重新绑定显示的数据发生变化的 page
+     *
+     * @param currentItem 更新后当前 page 的位置，保持显示更新前的同一条数据
+     */
+    abstract void onItemsChanged(int currentItem);
+
+    int getPageWidth() {
+        View view = getView();
+        return view.getWidth() - view.getPaddingLeft() - view.getPaddingRight();
+    }
+
+    int getPageHeight() {
+        View view = getView();
+        return view.getHeight() - view.getPaddingTop() - view.getPaddingBottom();
+    }
+}
@@ -0,0 +1,158 @@
+package com.kr.banner;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+/**
+ * 多个 Banner 共用的翻页时钟
+ * 1.所有 Banner 只使用一个定时消息，到期时间相近的 Banner 在同一次唤醒中触发
+ * 2.唤醒后等到下一帧开始时再回调，翻页动画和绘制对齐
+ * 只能在主线程使用
+ */
+final class RotationClock {
+
+    /**
+     * 到期时间相差不超过这个值的回调合并到同一次唤醒中
+     */
+    private static final long MERGE_WINDOW = 250;
+
+    interface Client {
+        void onTick();
+    }
+
+    private static final class Entry {
+        Client mClient;
+        long mDueTime;
+    }
+
+    private static RotationClock sDefault;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final ArrayList<Entry> mEntries = new ArrayList<>();
+    private final ArrayList<Entry> mFiring = new ArrayList<>();
+    private final ArrayList<Entry> mRecycled = new ArrayList<>();
+    private long mWakeTime = Long.MAX_VALUE;
+    private boolean mWaitingFrame;
+
+    private final Runnable mWakeTask = new Runnable() {
+        @Override
+        public void run() {
+            mWakeTime = Long.MAX_VALUE;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                postFrameCallback();
+            } else {
+                dispatch();
+            }
+        }
+    };
+
+    private Object mFrameCallback;
+
+    static RotationClock getDefault() {
+        if (sDefault == null) {
+            sDefault = new RotationClock();
+        }
+        return sDefault;
+    }
+
+    /**
+     * 在 delayMillis 之后回调 client，client 已经在等待时会替换原来的到期时间
+     */
+    void schedule(Client client, long delayMillis) {
+        Entry entry = find(client);
+        if (entry == null) {
+            entry = mRecycled.isEmpty() ? new Entry() : mRecycled.remove(mRecycled.size() - 1);
+            entry.mClient = client;
+            mEntries.add(entry);
+        }
+        entry.mDueTime = SystemClock.uptimeMillis() + delayMillis;
+        reschedule();
+    }
+
+    void cancel(Client client) {
+        Entry entry = find(client);
+        if (entry != null) {
+            mEntries.remove(entry);
+            recycle(entry);
+            reschedule();
+        }
+    }
+
+    boolean isScheduled(Client client) {
+        return find(client) != null;
+    }
+
+    private Entry find(Client client) {
+        for (int i = 0; i < mEntries.size(); i++) {
+            if (mEntries.get(i).mClient == client) {
+                return mEntries.get(i);
+            }
+        }
+        return null;
+    }
+
+    private void recycle(Entry entry) {
+        entry.mClient = null;
+        mRecycled.add(entry);
+    }
+
+    private void reschedule() {
+        if (mWaitingFrame) {
+            // 下一帧回调后会重新计算
+            return;
+        }
+        long next = Long.MAX_VALUE;
+        for (int i = 0; i < mEntries.size(); i++) {
+            next = Math.min(next, mEntries.get(i).mDueTime);
+        }
+        if (next == mWakeTime) {
+            return;
+        }
+        mHandler.removeCallbacks(mWakeTask);
+        mWakeTime = next;
+        if (next != Long.MAX_VALUE) {
+            mHandler.postAtTime(mWakeTask, next);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        if (mFrameCallback == null) {
+            mFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    mWaitingFrame = false;
+                    dispatch();
+                }
+            };
+        }
+        mWaitingFrame = true;
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+    }
+
+    private void dispatch() {
+        long deadline = SystemClock.uptimeMillis() + MERGE_WINDOW;
+        for (int i = mEntries.size() - 1; i >= 0; i--) {
+            Entry entry = mEntries.get(i);
+            if (entry.mDueTime <= deadline) {
+                mEntries.remove(i);
+                mFiring.add(entry);
+            }
+        }
+        for (int i = 0; i < mFiring.size(); i++) {
+            Entry entry = mFiring.get(i);
+            Client client = entry.mClient;
+            recycle(entry);
+            // 回调中可能再次 schedule
+            client.onTick();
+        }
+        mFiring.clear();
+        reschedule();
+    }
+}
@@ -0,0 +1,262 @@
+package com.kr.banner;
+
+import android.graphics.Rect;
+import android.os.Build;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+/**
+ * Banner 的自动翻页调度
+ * 1.view 从窗口移除、不可见、滑出屏幕或者 Lifecycle 停止时暂停，不再唤醒主线程，恢复后重新计时
+ * 2.定时通过 {@link RotationClock} 实现，同一个页面上的多个 Banner 共用一个定时器
+ * 3.每个周期先回调预加载，再回调翻页
+ * 4.翻页前通过 {@link FrameIdleGate} 等待主线程空闲，窗口焦点变化（例如弹出键盘）后等待窗口动画结束，
+ *   一直忙碌时跳过这次翻页，稍后重试
+ */
+final class RotationScheduler implements RotationClock.Client {
+
+    // 等待主线程空闲的最长时间，超过后跳过这次翻页
+    private static final long MAX_IDLE_WAIT = 2000;
+    // 跳过翻页后重试的间隔
+    private static final long BUSY_RETRY_DELAY = 1000;
+
+    interface Callback {
+        void onPrefetch();
+
+        void onAdvance();
+    }
+
+    private final View mView;
+    private final RotationClock mClock;
+    private final Callback mCallback;
+    private final long mInterval;
+    private final long mPrefetchLead;
+    private final FrameIdleGate mIdleGate;
+    private final long mWindowAnimationTime;
+
+    private Lifecycle mLifecycle;
+    private boolean mEnabled;
+    private boolean mInteracting;
+    private boolean mRunning;
+    private boolean mPrefetched;
+    private final Rect mVisibleRect = new Rect();
+
+    private final ViewTreeObserver.OnGlobalLayoutListener mLayoutListener = new ViewTreeObserver.OnGlobalLayoutListener() {
+        @Override
+        public void onGlobalLayout() {
+            update();
+        }
+    };
+
+    private final ViewTreeObserver.OnScrollChangedListener mScrollListener = new ViewTreeObserver.OnScrollChangedListener() {
+        @Override
+        public void onScrollChanged() {
+            update();
+        }
+    };
+
+    private Object mFocusListener;
+
+    private final View.OnAttachStateChangeListener mAttachListener = new View.OnAttachStateChangeListener() {
+        @Override
+        public void onViewAttachedToWindow(View v) {
+            addTreeObservers();
+            update();
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            removeTreeObservers();
+            pauseClock();
+        }
+    };
+
+    private final LifecycleEventObserver mLifecycleObserver = new LifecycleEventObserver() {
+        @Override
+        public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                stop();
+                source.getLifecycle().removeObserver(this);
+                mLifecycle = null;
+            } else {
+                update();
+            }
+        }
+    };
+
+    private final FrameIdleGate.Callback mIdleCallback = new FrameIdleGate.Callback() {
+        @Override
+        public void onIdle() {
+            mRunning = false;
+            if (!canRun()) {
+                return;
+            }
+            mCallback.onAdvance();
+            scheduleCycle();
+        }
+
+        @Override
+        public void onTimeout() {
+            // 预加载已经完成，重试时直接等待空闲
+            mPrefetched = true;
+            mClock.schedule(RotationScheduler.this, BUSY_RETRY_DELAY);
+        }
+    };
+
+    /**
+     * @param interval     翻页间隔
+     * @param prefetchLead 在翻页前多久回调预加载，0 表示不预加载
+     */
+    RotationScheduler(View view, RotationClock clock, long interval, long prefetchLead, Callback callback) {
+        mView = view;
+        mClock = clock;
+        mInterval = interval;
+        mPrefetchLead = Math.min(prefetchLead, interval);
+        mCallback = callback;
+        mIdleGate = new FrameIdleGate(view.getContext(), MAX_IDLE_WAIT, mIdleCallback);
+        mWindowAnimationTime = view.getResources().getInteger(android.R.integer.config_mediumAnimTime);
+    }
+
+    void setLifecycle(Lifecycle lifecycle) {
+        if (mLifecycle != null) {
+            mLifecycle.removeObserver(mLifecycleObserver);
+        }
+        mLifecycle = lifecycle;
+        if (lifecycle != null && mEnabled) {
+            lifecycle.addObserver(mLifecycleObserver);
+        }
+    }
+
+    void start() {
+        if (mEnabled) {
+            return;
+        }
+        mEnabled = true;
+        mView.addOnAttachStateChangeListener(mAttachListener);
+        if (mView.getWindowToken() != null) {
+            addTreeObservers();
+        }
+        if (mLifecycle != null) {
+            mLifecycle.addObserver(mLifecycleObserver);
+        }
+        update();
+    }
+
+    void stop() {
+        if (!mEnabled) {
+            return;
+        }
+        mEnabled = false;
+        mView.removeOnAttachStateChangeListener(mAttachListener);
+        removeTreeObservers();
+        if (mLifecycle != null) {
+            mLifecycle.removeObserver(mLifecycleObserver);
+        }
+        pauseClock();
+    }
+
+    /**
+     * 用户拖动时暂停，松手后重新计时
+     */
+    void setInteracting(boolean interacting) {
+        mInteracting = interacting;
+        if (interacting) {
+            pauseClock();
+        } else {
+            update();
+        }
+    }
+
+    /**
+     * 重新开始一个完整的翻页周期，例如页面变化后调用
+     */
+    void restart() {
+        pauseClock();
+        update();
+    }
+
+    @Override
+    public void onTick() {
+        mRunning = false;
+        if (!canRun()) {
+            return;
+        }
+        if (!mPrefetched && mPrefetchLead > 0) {
+            mPrefetched = true;
+            mCallback.onPrefetch();
+            mRunning = true;
+            mClock.schedule(this, mPrefetchLead);
+            return;
+        }
+        // 等待期间仍然算作运行中，暂停时一起取消
+        mRunning = true;
+        mIdleGate.await();
+    }
+
+    private void update() {
+        boolean canRun = canRun();
+        if (canRun && !mRunning) {
+            scheduleCycle();
+        } else if (!canRun && mRunning) {
+            pauseClock();
+        }
+    }
+
+    private void scheduleCycle() {
+        mRunning = true;
+        mPrefetched = false;
+        mClock.schedule(this, mPrefetchLead > 0 ? mInterval - mPrefetchLead : mInterval);
+    }
+
+    private void pauseClock() {
+        if (mRunning) {
+            mRunning = false;
+            mClock.cancel(this);
+            mIdleGate.cancel();
+        }
+    }
+
+    private boolean canRun() {
+        return mEnabled
+                && !mInteracting
+                && mView.getWindowToken() != null
+                && mView.getWindowVisibility() == View.VISIBLE
+                && mView.isShown()
+                && mView.getGlobalVisibleRect(mVisibleRect)
+                && (mLifecycle == null || mLifecycle.getCurrentState().isAtLeast(Lifecycle.State.STARTED));
+    }
+
+    private void addTreeObservers() {
+        ViewTreeObserver observer = mView.getViewTreeObserver();
+        observer.addOnGlobalLayoutListener(mLayoutListener);
+        observer.addOnScrollChangedListener(mScrollListener);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            if (mFocusListener == null) {
+                mFocusListener = new ViewTreeObserver.OnWindowFocusChangeListener() {
+                    @Override
+                    public void onWindowFocusChanged(boolean hasFocus) {
+                        // 其他窗口（对话框、键盘）正在显示或者关闭，等它的动画结束
+                        mIdleGate.holdOff(mWindowAnimationTime);
+                        update();
+                    }
+                };
+            }
+            observer.addOnWindowFocusChangeListener((ViewTreeObserver.OnWindowFocusChangeListener) mFocusListener);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void removeTreeObservers() {
+        ViewTreeObserver observer = mView.getViewTreeObserver();
+        observer.removeGlobalOnLayoutListener(mLayoutListener);
+        observer.removeOnScrollChangedListener(mScrollListener);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2 && mFocusListener != null) {
+            observer.removeOnWindowFocusChangeListener((ViewTreeObserver.OnWindowFocusChangeListener) mFocusListener);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.kr.banner;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.viewpager.widget.ViewPager;
+
+/**
+ * Banner 默认的缩放、透明度动画
+ * 1.缩放和透明度曲线的斜率在创建时计算好，每帧只做一次乘法
+ * 2.只在属性值变化时才写入 view，静止的 page 不会触发重绘
+ * 3.只在拖动和惯性滑动期间为 page 开启硬件层，避免透明度变化时每帧离屏合成，停止后关闭释放显存
+ */
+public final class ScalePageTransformer implements ViewPager.PageTransformer, ViewPager.OnPageChangeListener {
+
+    private static final float DEFAULT_MIN_SCALE = 0.8f;
+    private static final float DEFAULT_MIN_ALPHA = 0.5f;
+
+    private final float mScaleSlope;
+    private final float mAlphaSlope;
+
+    private ViewPager mViewPager;
+    // page 的父布局，ViewPager2 时是内部的 RecyclerView
+    private ViewGroup mPages;
+    private boolean mScrolling;
+
+    public ScalePageTransformer() {
+        this(DEFAULT_MIN_SCALE, DEFAULT_MIN_ALPHA);
+    }
+
+    /**
+     * @param minScale 相邻 page 的缩放
+     * @param minAlpha 相邻 page 的透明度
+     */
+    public ScalePageTransformer(float minScale, float minAlpha) {
+        mScaleSlope = 1 - minScale;
+        mAlphaSlope = 1 - minAlpha;
+    }
+
+    /**
+     * 设置为 viewPager 的 PageTransformer，并监听滑动状态切换硬件层
+     */
+    public void attachTo(@NonNull ViewPager viewPager) {
+        if (mViewPager != null) {
+            mViewPager.removeOnPageChangeListener(this);
+        }
+        mViewPager = viewPager;
+        mPages = viewPager;
+        viewPager.setPageTransformer(false, this);
+        viewPager.addOnPageChangeListener(this);
+    }
+
+    /**
+     * 用于 ViewPager2，滑动状态需要调用方通过 {@link #onPageScrollStateChanged} 转发
+     */
+    void setPageContainer(ViewGroup pages) {
+        mPages = pages;
+    }
+
+    @Override
+    public void transformPage(@NonNull View page, float position) {
+        float distance = Math.abs(position);
+        float scale = 1 - mScaleSlope * distance;
+        float alpha = Math.abs(1 - mAlphaSlope * distance);
+        //为了滑动过程中，page间距不变，这里做了处理
+        float pivotX = position < 0 ? page.getWidth() : 0f;
+        float pivotY = page.getHeight() / 2f;
+
+        if (page.getPivotX() != pivotX) {
+            page.setPivotX(pivotX);
+        }
+        if (page.getPivotY() != pivotY) {
+            page.setPivotY(pivotY);
+        }
+        if (page.getScaleX() != scale) {
+            page.setScaleX(scale);
+            page.setScaleY(scale);
+        }
+        if (page.getAlpha() != alpha) {
+            page.setAlpha(alpha);
+        }
+        // 滑动过程中新加入的 page 也需要开启硬件层
+        if (mScrolling && page.getLayerType() != View.LAYER_TYPE_HARDWARE) {
+            page.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        }
+    }
+
+    @Override
+    public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+
+    }
+
+    @Override
+    public void onPageSelected(int position) {
+
+    }
+
+    @Override
+    public void onPageScrollStateChanged(int state) {
+        boolean scrolling = state != ViewPager.SCROLL_STATE_IDLE;
+        if (scrolling == mScrolling || mPages == null) {
+            return;
+        }
+        mScrolling = scrolling;
+        int layerType = scrolling ? View.LAYER_TYPE_HARDWARE : View.LAYER_TYPE_NONE;
+        for (int i = 0; i < mPages.getChildCount(); i++) {
+            View page = mPages.getChildAt(i);
+            if (page.getLayerType() != layerType) {
+                page.setLayerType(layerType, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.kr.banner;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.viewpager.widget.ViewPager;
+import androidx.viewpager2.widget.ViewPager2;
+
+/**
+ * 使用 {@link ViewPager2} 翻页，page 的回收交给 RecyclerView
+ * 数据更新时对当前位置附近（包括 RecyclerView 的缓存）发出带 payload 的局部刷新，
+ * 不触发切换动画，{@link Host#bindPage} 只重新绑定数据真正变化的 page
+ * 自动翻页通过 fakeDrag 在每一帧拖动一段距离，滑动时长固定，用户触摸时中断
+ */
+final class ViewPager2Backend extends PagerBackend {
+
+    // RecyclerView 在预加载之外默认缓存的 view 数量
+    private static final int RECYCLER_CACHE_SIZE = 2;
+    private static final Object PAYLOAD_ITEMS_CHANGED = new Object();
+
+    private final ViewPager2 mViewPager;
+    private Host mHost;
+    private int mOffscreenPageLimit;
+
+    // 自动翻页的拖动状态，开始时间为 -1 表示还没有收到第一帧
+    private int mDragDuration;
+    private int mDragDistance;
+    private float mDragged;
+    private long mDragStartNanos;
+    private boolean mDragging;
+    private Object mDragCallback;
+
+    private final RecyclerView.Adapter<PageHolder> mAdapter = new RecyclerView.Adapter<PageHolder>() {
+
+        @Override
+        public int getItemCount() {
+            return PAGE_COUNT;
+        }
+
+        @Override
+        public int getItemViewType(int position) {
+            // 布局 id 作为 view type，共用 RecycledViewPool 时不同 Banner 的 view type 不会冲突
+            return mHost.getItemLayout(position);
+        }
+
+        @NonNull
+        @Override
+        public PageHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            return new PageHolder(mHost.createPage(parent, viewType));
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull PageHolder holder, int position) {
+            mHost.bindPage(holder.itemView, position);
+        }
+    };
+
+    private static final class PageHolder extends RecyclerView.ViewHolder {
+        PageHolder(View itemView) {
+            super(itemView);
+        }
+    }
+
+    ViewPager2Backend(ViewPager2 viewPager) {
+        mViewPager = viewPager;
+    }
+
+    @Override
+    View getView() {
+        return mViewPager;
+    }
+
+    @Override
+    void setup(final Host host, int offscreenPageLimit, final ViewPager.PageTransformer transformer, int currentItem) {
+        mHost = host;
+        mOffscreenPageLimit = offscreenPageLimit;
+        mViewPager.setAdapter(mAdapter);
+        mViewPager.setOffscreenPageLimit(offscreenPageLimit);
+        mViewPager.setCurrentItem(currentItem, false);
+
+        final ScalePageTransformer scaleTransformer = transformer instanceof ScalePageTransformer
+                ? (ScalePageTransformer) transformer : null;
+        if (scaleTransformer != null) {
+            scaleTransformer.setPageContainer((ViewGroup) mViewPager.getChildAt(0));
+        }
+        mViewPager.registerOnPageChangeCallback(new ViewPager2.OnPageChangeCallback() {
+            @Override
+            public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+                host.onPageScrolled(position, positionOffset);
+            }
+
+            @Override
+            public void onPageScrollStateChanged(int state) {
+                if (scaleTransformer != null) {
+                    scaleTransformer.onPageScrollStateChanged(state);
+                }
+                host.onPageScrollStateChanged(state);
+            }
+        });
+        if (transformer != null) {
+            mViewPager.setPageTransformer(new ViewPager2.PageTransformer() {
+                @Override
+                public void transformPage(@NonNull View page, float position) {
+                    transformer.transformPage(page, position);
+                }
+            });
+        }
+    }
+
+    @Override
+    void setPagePool(PagePool pool) {
+        ((RecyclerView) mViewPager.getChildAt(0)).setRecycledViewPool(pool.getRecycledViewPool());
+    }
+
+    @Override
+    int getCurrentItem() {
+        return mViewPager.getCurrentItem();
+    }
+
+    @Override
+    void setCurrentItem(int item, boolean smoothScroll) {
+        mViewPager.setCurrentItem(item, smoothScroll);
+    }
+
+    @Override
+    void advance(int item, int duration) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN || duration <= 0 || mDragging
+                || item != mViewPager.getCurrentItem() + 1) {
+            mViewPager.setCurrentItem(item, true);
+            return;
+        }
+        int distance = mViewPager.getOrientation() == ViewPager2.ORIENTATION_HORIZONTAL
+                ? getPageWidth() : getPageHeight();
+        if (distance <= 0 || !mViewPager.beginFakeDrag()) {
+            mViewPager.setCurrentItem(item, true);
+            return;
+        }
+        mDragDuration = duration;
+        mDragDistance = distance;
+        mDragged = 0;
+        mDragStartNanos = -1;
+        mDragging = true;
+        postDragFrame();
+    }
+
+    @Override
+    void cancelAdvance() {
+        if (!mDragging) {
+            return;
+        }
+        mDragging = false;
+        removeDragFrame();
+        if (mViewPager.isFakeDragging()) {
+            mViewPager.endFakeDrag();
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postDragFrame() {
+        if (mDragCallback == null) {
+            mDragCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    onDragFrame(frameTimeNanos);
+                }
+            };
+        }
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mDragCallback);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void removeDragFrame() {
+        if (mDragCallback != null) {
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) mDragCallback);
+        }
+    }
+
+    private void onDragFrame(long frameTimeNanos) {
+        if (!mDragging) {
+            return;
+        }
+        // 用户开始拖动时 fakeDrag 被中断，之后的拖动都会被忽略
+        if (!mViewPager.isFakeDragging()) {
+            mDragging = false;
+            return;
+        }
+        if (mDragStartNanos < 0) {
+            mDragStartNanos = frameTimeNanos;
+        }
+        float t = Math.min(1.0f, (frameTimeNanos - mDragStartNanos) / 1000000f / mDragDuration);
+        float target = interpolate(t) * mDragDistance;
+        // 负值向下一页拖动
+        mViewPager.fakeDragBy(mDragged - target);
+        mDragged = target;
+        if (t < 1.0f) {
+            postDragFrame();
+        } else {
+            mDragging = false;
+            mViewPager.endFakeDrag();
+        }
+    }
+
+    @Override
+    void onItemsChanged(int currentItem) {
+        if (mViewPager.getCurrentItem() != currentItem) {
+            mViewPager.setCurrentItem(currentItem, false);
+        }
+        int range = mOffscreenPageLimit + RECYCLER_CACHE_SIZE + 1;
+        mAdapter.notifyItemRangeChanged(currentItem - range, range * 2 + 1, PAYLOAD_ITEMS_CHANGED);
+    }
+}
@@ -0,0 +1,201 @@
+package com.kr.banner;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.animation.Interpolator;
+import android.widget.Scroller;
+
+import androidx.annotation.NonNull;
+import androidx.viewpager.widget.PagerAdapter;
+import androidx.viewpager.widget.ViewPager;
+
+import java.lang.reflect.Field;
+
+/**
+ * 使用 {@link ViewPager} 翻页
+ * 数据更新时通过 {@link PagerAdapter#getItemPosition} 逐个检查显示中的 page，
+ * 数据没有变化的 page 保留，变化的在原地重新绑定，view type 变化的才移除重建
+ * 自动翻页时通过替换 ViewPager 的 Scroller 使用固定的滑动时长，替换失败时使用 ViewPager 默认的时长
+ */
+final class ViewPagerBackend extends PagerBackend {
+
+    private static Field sScrollerField;
+    private static boolean sScrollerFieldFetched;
+
+    private final ViewPager mViewPager;
+    private AdvanceScroller mScroller;
+    private Host mHost;
+    // 数据更新时当前 page 位置的偏移，所有 page 一起平移
+    private int mShift;
+
+    private final PagerAdapter mAdapter = new PagerAdapter() {
+
+        @Override
+        public int getCount() {
+            return PAGE_COUNT;
+        }
+
+        @Override
+        public boolean isViewFromObject(@NonNull View view, @NonNull Object object) {
+            return view == object;
+        }
+
+        @NonNull
+        @Override
+        public Object instantiateItem(@NonNull ViewGroup container, int position) {
+            View v = mHost.obtainPage(container, position);
+            v.setTag(R.id.banner_item_adapter_position, position);
+            container.addView(v);
+            return v;
+        }
+
+        @Override
+        public void destroyItem(@NonNull ViewGroup container, int position, @NonNull Object object) {
+            View v = (View) object;
+            container.removeView(v);
+            mHost.recyclePage(v);
+        }
+
+        @Override
+        public int getItemPosition(@NonNull Object object) {
+            View v = (View) object;
+            Object tag = v.getTag(R.id.banner_item_adapter_position);
+            if (tag == null) {
+                return POSITION_NONE;
+            }
+            int oldPosition = (Integer) tag;
+            int position = oldPosition + mShift;
+            if (!mHost.bindPage(v, position)) {
+                return POSITION_NONE;
+            }
+            if (position == oldPosition) {
+                return POSITION_UNCHANGED;
+            }
+            v.setTag(R.id.banner_item_adapter_position, position);
+            return position;
+        }
+    };
+
+    ViewPagerBackend(ViewPager viewPager) {
+        mViewPager = viewPager;
+    }
+
+    @Override
+    View getView() {
+        return mViewPager;
+    }
+
+    @Override
+    void setup(final Host host, int offscreenPageLimit, ViewPager.PageTransformer transformer, int currentItem) {
+        mHost = host;
+        mViewPager.setAdapter(mAdapter);
+        mViewPager.setOffscreenPageLimit(offscreenPageLimit);
+        mViewPager.setCurrentItem(currentItem);
+        mScroller = installScroller(mViewPager);
+        mViewPager.addOnPageChangeListener(new ViewPager.OnPageChangeListener() {
+            @Override
+            public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+                host.onPageScrolled(position, positionOffset);
+            }
+
+            @Override
+            public void onPageSelected(int position) {
+
+            }
+
+            @Override
+            public void onPageScrollStateChanged(int state) {
+                host.onPageScrollStateChanged(state);
+            }
+        });
+
+        if (transformer instanceof ScalePageTransformer) {
+            ((ScalePageTransformer) transformer).attachTo(mViewPager);
+        } else {
+            mViewPager.setPageTransformer(false, transformer);
+        }
+    }
+
+    @Override
+    int getCurrentItem() {
+        return mViewPager.getCurrentItem();
+    }
+
+    @Override
+    void setCurrentItem(int item, boolean smoothScroll) {
+        mViewPager.setCurrentItem(item, smoothScroll);
+    }
+
+    @Override
+    void advance(int item, int duration) {
+        if (mScroller == null) {
+            mViewPager.setCurrentItem(item, true);
+            return;
+        }
+        // ViewPager 在 setCurrentItem 中同步调用 startScroll
+        mScroller.mFixedDuration = duration;
+        mViewPager.setCurrentItem(item, true);
+        mScroller.mFixedDuration = 0;
+    }
+
+    /**
+     * @return ViewPager 的实现不同，无法替换时返回 null
+     */
+    private static AdvanceScroller installScroller(ViewPager viewPager) {
+        if (!sScrollerFieldFetched) {
+            sScrollerFieldFetched = true;
+            try {
+                sScrollerField = ViewPager.class.getDeclaredField("mScroller");
+                sScrollerField.setAccessible(true);
+            } catch (Exception e) {
+                sScrollerField = null;
+            }
+        }
+        if (sScrollerField == null) {
+            return null;
+        }
+        AdvanceScroller scroller = new AdvanceScroller(viewPager.getContext());
+        try {
+            sScrollerField.set(viewPager, scroller);
+            return scroller;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 只在自动翻页期间使用固定时长，用户松手后的滑动保持 ViewPager 根据距离和速度计算的时长
+     */
+    private static final class AdvanceScroller extends Scroller {
+
+        private static final Interpolator INTERPOLATOR = new Interpolator() {
+            @Override
+            public float getInterpolation(float t) {
+                return interpolate(t);
+            }
+        };
+
+        int mFixedDuration;
+
+        AdvanceScroller(Context context) {
+            super(context, INTERPOLATOR);
+        }
+
+        @Override
+        public void startScroll(int startX, int startY, int dx, int dy, int duration) {
+            super.startScroll(startX, startY, dx, dy, mFixedDuration > 0 ? mFixedDuration : duration);
+        }
+    }
+
+    @Override
+    void onItemsChanged(int currentItem) {
+        mShift = currentItem - mViewPager.getCurrentItem();
+        mAdapter.notifyDataSetChanged();
+        mShift = 0;
+        // 当前 page 被移除重建时 ViewPager 不会应用偏移
+        if (mViewPager.getCurrentItem() != currentItem) {
+            mViewPager.setCurrentItem(currentItem, false);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.kr.banner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * ItemDiffer.mapPosition 的本地单元测试
+ */
+public class ItemDifferTest {
+
+    private static final int NO = PageRecycler.NO_POSITION;
+
+    @Test
+    public void keptItemFollowsItsNewPosition() {
+        // 在开头插入了一条数据
+        int[] oldToNewItem = {1, 2, 3};
+        assertEquals(1, ItemDiffer.mapPosition(oldToNewItem, 0, 4));
+        assertEquals(3, ItemDiffer.mapPosition(oldToNewItem, 2, 4));
+    }
+
+    @Test
+    public void removedItemFallsBackToNearestSurvivor() {
+        int[] oldToNewItem = {0, NO, NO, NO, 1};
+        assertEquals(0, ItemDiffer.mapPosition(oldToNewItem, 1, 2));
+        assertEquals(1, ItemDiffer.mapPosition(oldToNewItem, 3, 2));
+        // 距离相同时取后面的
+        assertEquals(1, ItemDiffer.mapPosition(oldToNewItem, 2, 2));
+    }
+
+    @Test
+    public void everythingRemovedKeepsPositionInRange() {
+        int[] oldToNewItem = {NO, NO, NO};
+        assertEquals(1, ItemDiffer.mapPosition(oldToNewItem, 1, 2));
+        assertEquals(1, ItemDiffer.mapPosition(oldToNewItem, 2, 2));
+        assertEquals(0, ItemDiffer.mapPosition(oldToNewItem, 0, 2));
+    }
+
+    @Test
+    public void positionIsReadAtApplyTime() {
+        // 提交时显示第 0 条，比较期间翻到了第 2 条，应用时应该保持第 2 条
+        int[] oldToNewItem = {2, 0, 1};
+        assertEquals(1, ItemDiffer.mapPosition(oldToNewItem, 2, 3));
+    }
+}
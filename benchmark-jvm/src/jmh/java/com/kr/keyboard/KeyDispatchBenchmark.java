@@ -0,0 +1,74 @@
+package com.kr.keyboard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CustomKeyboardManager 中与 Android 无关的部分：按键码查表、单字符缓存、大小写层切换
+ * 键盘内容与 keyboard_number.xml 的字符键相同
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KeyDispatchBenchmark {
+
+    private static final String KEYS = "1234567890qwertyuiopasdfghjklzxcvbnm";
+
+    private KeyLayers mLayers;
+    private int mKeyIndex;
+    private final StringBuilder mText = new StringBuilder(256);
+
+    @Setup
+    public void setUp() {
+        int count = KEYS.length();
+        int[] codes = new int[count];
+        CharSequence[] labels = new CharSequence[count];
+        for (int i = 0; i < count; i++) {
+            codes[i] = KEYS.charAt(i);
+            labels[i] = KeyChars.of(codes[i]);
+        }
+        mLayers = new KeyLayers(codes, labels);
+    }
+
+    /**
+     * 一次字符按键：查当前层的 code，取缓存的字符写入文本，单次大写恢复小写
+     */
+    @Benchmark
+    public void keystroke() {
+        int keyIndex = mKeyIndex;
+        mKeyIndex = keyIndex + 1 == KEYS.length() ? 0 : keyIndex + 1;
+        int code = mLayers.getCode(keyIndex);
+        if (mText.length() == 255) {
+            mText.setLength(0);
+        }
+        mText.append(KeyChars.of(code));
+        mLayers.setLayer(KeyLayers.layerAfterCharacter(mLayers.getLayer()));
+    }
+
+    /**
+     * 按 shift 切换层，之后读取所有按键的 label 模拟刷新键盘
+     */
+    @Benchmark
+    public void shiftAndRelabel(Blackhole blackhole) {
+        mLayers.setLayer(KeyLayers.shiftLayer(mLayers.getLayer(), false));
+        for (int i = 0; i < KEYS.length(); i++) {
+            blackhole.consume(mLayers.getLabel(i));
+        }
+    }
+
+    /**
+     * 非 ASCII 字符走按页懒加载的路径
+     */
+    @Benchmark
+    public CharSequence keyCharsCjk() {
+        return KeyChars.of(0x4E2D);
+    }
+}
@@ -0,0 +1,58 @@
+package com.kr.keyboard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 随机键盘洗牌的耗时
+ * digits: 只打乱数字键，letters: 数字和字母两组，rows: 全键盘按行分组
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KeyPermutationBenchmark {
+
+    @Param({"digits", "letters", "rows"})
+    public String scope;
+
+    @Param({"secure", "plain"})
+    public String random;
+
+    private int[] mOut;
+    private int[] mGroupEnds;
+    private Random mRandom;
+
+    @Setup
+    public void setUp() {
+        switch (scope) {
+            case "digits":
+                mGroupEnds = new int[]{10};
+                break;
+            case "letters":
+                mGroupEnds = new int[]{10, 36};
+                break;
+            default:
+                // keyboard_number.xml 的四行字符键
+                mGroupEnds = new int[]{10, 19, 26, 36};
+                break;
+        }
+        mOut = new int[mGroupEnds[mGroupEnds.length - 1]];
+        mRandom = "secure".equals(random) ? new SecureRandom() : new Random(42);
+    }
+
+    @Benchmark
+    public int[] permute() {
+        KeyPermutation.permute(mOut, mGroupEnds, mRandom);
+        return mOut;
+    }
+}
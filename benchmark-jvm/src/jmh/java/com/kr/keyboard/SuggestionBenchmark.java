@@ -0,0 +1,82 @@
+package com.kr.keyboard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 联想词查找的耗时，要求在主线程上低于 1ms
+ * 词典随机生成后写入临时文件再内存映射，与设备上的加载方式相同
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SuggestionBenchmark {
+
+    @Param({"1000", "50000"})
+    public int words;
+
+    // 输入的前缀长度，越短候选越多
+    @Param({"1", "3"})
+    public int prefixLength;
+
+    private TrieDictionary mDictionary;
+    private final String[] mOut = new String[3];
+    private String[] mPrefixes;
+    private int mNext;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        TrieDictionaryWriter writer = new TrieDictionaryWriter();
+        char[] word = new char[12];
+        for (int i = 0; i < words; i++) {
+            int length = 2 + random.nextInt(word.length - 2);
+            for (int j = 0; j < length; j++) {
+                word[j] = (char) ('a' + random.nextInt(26));
+            }
+            writer.add(new String(word, 0, length), 1 + random.nextInt(TrieDictionaryWriter.MAX_FREQUENCY));
+        }
+
+        File file = File.createTempFile("suggestions", ".dict");
+        file.deleteOnExit();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            channel.write(writer.write());
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mDictionary = new TrieDictionary(mapped);
+        } finally {
+            raf.close();
+        }
+
+        mPrefixes = new String[64];
+        for (int i = 0; i < mPrefixes.length; i++) {
+            char[] prefix = new char[prefixLength];
+            for (int j = 0; j < prefixLength; j++) {
+                prefix[j] = (char) ('a' + random.nextInt(26));
+            }
+            mPrefixes[i] = new String(prefix);
+        }
+    }
+
+    @Benchmark
+    public String[] suggest() {
+        String prefix = mPrefixes[mNext++ & (mPrefixes.length - 1)];
+        mDictionary.suggest(prefix, 0, prefix.length(), mOut);
+        return mOut;
+    }
+}
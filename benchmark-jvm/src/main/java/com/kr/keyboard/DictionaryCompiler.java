@@ -0,0 +1,49 @@
+package com.kr.keyboard;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * 将词表编译为 {@link TrieDictionary} 的二进制格式
+ * 词表每行 单词 词频，# 开头的行是注释
+ * <p>
+ * 用法：DictionaryCompiler words.txt suggestions.dict
+ */
+public final class DictionaryCompiler {
+
+    private DictionaryCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("usage: DictionaryCompiler <words.txt> <output.dict>");
+        }
+        TrieDictionaryWriter writer = new TrieDictionaryWriter();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(args[0]), Charset.forName("UTF-8")));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                writer.add(parts[0], Integer.parseInt(parts[1]));
+            }
+        } finally {
+            reader.close();
+        }
+        ByteBuffer buffer = writer.write();
+        FileOutputStream out = new FileOutputStream(args[1]);
+        try {
+            out.getChannel().write(buffer);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.kr.banner;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.util.TypedValue;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import androidx.viewpager.widget.ViewPager;
+
+import com.kr.benchmark.test.R;
+
+import java.util.Arrays;
+
+/**
+ * 使用默认页面动画的 Banner，布局与 demo 相同：两侧露出相邻的 page
+ */
+public class BannerBenchmarkActivity extends Activity {
+
+    private static final int[] COLORS = {0xFFE57373, 0xFF64B5F6, 0xFF81C784, 0xFFFFB74D, 0xFFBA68C8};
+
+    private ViewPager mViewPager;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        int margin = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 30, getResources().getDisplayMetrics());
+        int height = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 180, getResources().getDisplayMetrics());
+
+        mViewPager = new ViewPager(this);
+        mViewPager.setClipToPadding(false);
+        mViewPager.setPadding(margin, 0, margin, 0);
+        FrameLayout root = new FrameLayout(this);
+        root.addView(mViewPager, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, height));
+        setContentView(root);
+
+        Banner banner = new Banner.Builder()
+                .setItems(Arrays.asList(0, 1, 2, 3, 4))
+                .setViewPager(mViewPager)
+                .setImtemViewId(R.layout.benchmark_page)
+                .setBindViewListener(new Banner.BindViewListener() {
+                    @Override
+                    public void onBind(View view, int pos) {
+                        view.setBackgroundColor(COLORS[pos]);
+                        ((TextView) view.findViewById(R.id.tv_page)).setText(String.valueOf(pos));
+                    }
+                })
+                .build();
+        // 只初始化 adapter，自动翻页会干扰测量
+        banner.start();
+        banner.stop();
+    }
+
+    ViewPager getViewPager() {
+        return mViewPager;
+    }
+}
@@ -0,0 +1,67 @@
+package com.kr.banner;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.rule.ActivityTestRule;
+import androidx.viewpager.widget.ViewPager;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Banner 滑动时每一帧在主线程上的耗时：拖动一步（页面动画、指示器、加载相邻 page）并绘制
+ * 真实的帧间隔见 banner 模块的 PageTransformerBenchmark
+ */
+@RunWith(AndroidJUnit4.class)
+public class BannerSwipeBenchmark {
+
+    private static final int STEPS_PER_PAGE = 30;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Rule
+    public ActivityTestRule<BannerBenchmarkActivity> mActivityRule =
+            new ActivityTestRule<>(BannerBenchmarkActivity.class);
+
+    @Test
+    @UiThreadTest
+    public void swipeFrame() {
+        ViewPager viewPager = mActivityRule.getActivity().getViewPager();
+        float step = (float) (viewPager.getWidth() - viewPager.getPaddingLeft() - viewPager.getPaddingRight()) / STEPS_PER_PAGE;
+        Canvas canvas = new Canvas(Bitmap.createBitmap(viewPager.getWidth(), viewPager.getHeight(), Bitmap.Config.ARGB_8888));
+
+        viewPager.beginFakeDrag();
+        BenchmarkState state = mBenchmarkRule.getState();
+        int frame = 0;
+        while (state.keepRunning()) {
+            // 向左拖一页再拖回来，反复经过相邻 page 的整个动画区间
+            boolean forward = (frame / STEPS_PER_PAGE) % 2 == 0;
+            viewPager.fakeDragBy(forward ? -step : step);
+            viewPager.draw(canvas);
+            frame++;
+        }
+        viewPager.endFakeDrag();
+    }
+
+    @Test
+    @UiThreadTest
+    public void swipeFrameDrawOnly() {
+        ViewPager viewPager = mActivityRule.getActivity().getViewPager();
+        Canvas canvas = new Canvas(Bitmap.createBitmap(viewPager.getWidth(), viewPager.getHeight(), Bitmap.Config.ARGB_8888));
+        viewPager.beginFakeDrag();
+        viewPager.fakeDragBy(-(viewPager.getWidth() - viewPager.getPaddingLeft() - viewPager.getPaddingRight()) / 2f);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            viewPager.draw(canvas);
+        }
+        viewPager.endFakeDrag();
+    }
+}
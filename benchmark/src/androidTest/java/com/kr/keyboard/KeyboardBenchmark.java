@@ -0,0 +1,105 @@
+package com.kr.keyboard;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.inputmethodservice.Keyboard;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.EditText;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * 键盘弹出和按键输入的耗时
+ */
+@RunWith(AndroidJUnit4.class)
+public class KeyboardBenchmark {
+
+    private static final int SCREEN_WIDTH = 1080;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    /**
+     * 第一次弹出：解析 xml、生成层表，然后测量并绘制一帧键盘
+     */
+    @Test
+    @UiThreadTest
+    public void firstShow() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        BenchmarkState state = mBenchmarkRule.getState();
+        Canvas canvas = null;
+        while (state.keepRunning()) {
+            KeyboardLayout layout = new KeyboardLayout(new Keyboard(context, R.xml.keyboard_number));
+            View root = LayoutInflater.from(context).inflate(R.layout.keyboard_view, null);
+            SecureKeyboardView keyboardView = root.findViewById(R.id.keyboardview);
+            keyboardView.setKeyboardLayout(layout);
+            layout.getShuffler(KeyShuffler.SCOPE_DIGITS).shuffle(keyboardView);
+            canvas = drawFrame(root, canvas);
+        }
+    }
+
+    /**
+     * 布局已经缓存时再次弹出：打乱按键并绘制一帧
+     */
+    @Test
+    @UiThreadTest
+    public void warmShow() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        KeyboardLayout layout = KeyboardHost.getInstance().getLayout(context, R.xml.keyboard_number);
+        View root = LayoutInflater.from(context).inflate(R.layout.keyboard_view, null);
+        SecureKeyboardView keyboardView = root.findViewById(R.id.keyboardview);
+        keyboardView.setKeyboardLayout(layout);
+        KeyShuffler shuffler = layout.getShuffler(KeyShuffler.SCOPE_DIGITS);
+        Canvas canvas = drawFrame(root, null);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            shuffler.shuffle(keyboardView);
+            drawFrame(root, canvas);
+        }
+    }
+
+    /**
+     * 按键到 Editable 的耗时，每 256 个字符清空一次，清空不计入结果
+     */
+    @Test
+    @UiThreadTest
+    public void keystrokeToEditable() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        EditText editText = new EditText(context);
+        CustomKeyboardManager manager = new CustomKeyboardManager(editText);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            manager.onKey('0' + i % 10, null);
+            if (++i % 256 == 0) {
+                state.pauseTiming();
+                editText.getText().clear();
+                state.resumeTiming();
+            }
+        }
+    }
+
+    private static Canvas drawFrame(View root, Canvas canvas) {
+        root.measure(View.MeasureSpec.makeMeasureSpec(SCREEN_WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        root.layout(0, 0, root.getMeasuredWidth(), root.getMeasuredHeight());
+        if (canvas == null) {
+            canvas = new Canvas(Bitmap.createBitmap(root.getMeasuredWidth(), root.getMeasuredHeight(),
+                    Bitmap.Config.ARGB_8888));
+        }
+        root.draw(canvas);
+        return canvas;
+    }
+}
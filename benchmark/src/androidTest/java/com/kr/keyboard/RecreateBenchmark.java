@@ -0,0 +1,75 @@
+package com.kr.keyboard;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * 键盘弹出时因为配置变化重建 Activity 的耗时：销毁、重新创建输入框的键盘和 Banner，直到重新显示
+ * 每次重建前确认键盘已经弹出，重建后检查键盘使用同一个布局和同一个随机排列，没有重新解析或者重新打乱
+ */
+@RunWith(AndroidJUnit4.class)
+public class RecreateBenchmark {
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    // 重建前显示的布局和随机排列
+    private KeyboardLayout mLayout;
+    private int[] mContents;
+
+    @Test
+    public void recreateWithKeyboardShown() {
+        ActivityScenario<RecreateBenchmarkActivity> scenario = ActivityScenario.launch(RecreateBenchmarkActivity.class);
+        try {
+            BenchmarkState state = mBenchmarkRule.getState();
+            while (state.keepRunning()) {
+                state.pauseTiming();
+                scenario.onActivity(new ActivityScenario.ActivityAction<RecreateBenchmarkActivity>() {
+                    @Override
+                    public void perform(RecreateBenchmarkActivity activity) {
+                        // 第一次需要获得焦点弹出键盘，之后由重建恢复的焦点弹出
+                        activity.getEditText().requestFocus();
+                        SecureKeyboardView keyboardView = activity.getManager().getKeyboardView();
+                        assertNotNull("keyboard not shown before recreate", keyboardView);
+                        mLayout = keyboardView.getKeyboardLayout();
+                        mContents = contentsOf(mLayout);
+                    }
+                });
+                state.resumeTiming();
+
+                // 与旋转相同的流程，返回时新的 Activity 已经 RESUMED
+                scenario.recreate();
+
+                state.pauseTiming();
+                scenario.onActivity(new ActivityScenario.ActivityAction<RecreateBenchmarkActivity>() {
+                    @Override
+                    public void perform(RecreateBenchmarkActivity activity) {
+                        SecureKeyboardView keyboardView = activity.getManager().getKeyboardView();
+                        assertNotNull("keyboard not shown after recreate", keyboardView);
+                        assertSame("layout was parsed again", mLayout, keyboardView.getKeyboardLayout());
+                        assertArrayEquals("keys were shuffled again", mContents, contentsOf(keyboardView.getKeyboardLayout()));
+                    }
+                });
+                state.resumeTiming();
+            }
+        } finally {
+            scenario.close();
+        }
+    }
+
+    private static int[] contentsOf(KeyboardLayout layout) {
+        int[] contents = new int[layout.getKeyCount()];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = layout.getContent(i);
+        }
+        return contents;
+    }
+}
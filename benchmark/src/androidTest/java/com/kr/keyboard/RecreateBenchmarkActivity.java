@@ -0,0 +1,76 @@
+package com.kr.keyboard;
+
+import android.os.Bundle;
+import android.util.TypedValue;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import androidx.activity.ComponentActivity;
+import androidx.viewpager.widget.ViewPager;
+
+import com.kr.banner.Banner;
+import com.kr.banner.BannerState;
+import com.kr.benchmark.test.R;
+
+import java.util.Arrays;
+
+/**
+ * 与 demo 相同的组合：使用自定义键盘的输入框和保留状态的 Banner，用于测量配置变化重建的耗时
+ * 输入框有固定的 id，重建后焦点恢复到输入框，键盘随之重新弹出
+ */
+public class RecreateBenchmarkActivity extends ComponentActivity {
+
+    private static final int[] COLORS = {0xFFE57373, 0xFF64B5F6, 0xFF81C784, 0xFFFFB74D, 0xFFBA68C8};
+
+    private EditText mEditText;
+    private CustomKeyboardManager mManager;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        int margin = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 30, getResources().getDisplayMetrics());
+        int height = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 180, getResources().getDisplayMetrics());
+
+        LinearLayout root = new LinearLayout(this);
+        root.setOrientation(LinearLayout.VERTICAL);
+        mEditText = new EditText(this);
+        mEditText.setId(R.id.benchmark_edit_text);
+        root.addView(mEditText, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        ViewPager viewPager = new ViewPager(this);
+        viewPager.setClipToPadding(false);
+        viewPager.setPadding(margin, 0, margin, 0);
+        root.addView(viewPager, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, height));
+        setContentView(root);
+
+        mManager = new CustomKeyboardManager(mEditText);
+        mManager.subscribe();
+
+        Banner banner = new Banner.Builder()
+                .setItems(Arrays.asList(0, 1, 2, 3, 4))
+                .setViewPager(viewPager)
+                .setImtemViewId(R.layout.benchmark_page)
+                .setState(BannerState.of(this, "benchmark"))
+                .setBindViewListener(new Banner.BindViewListener() {
+                    @Override
+                    public void onBind(View view, int pos) {
+                        view.setBackgroundColor(COLORS[pos]);
+                        ((TextView) view.findViewById(R.id.tv_page)).setText(String.valueOf(pos));
+                    }
+                })
+                .build();
+        // 只初始化 adapter，自动翻页会干扰测量
+        banner.start();
+        banner.stop();
+    }
+
+    EditText getEditText() {
+        return mEditText;
+    }
+
+    CustomKeyboardManager getManager() {
+        return mManager;
+    }
+}
@@ -0,0 +1,145 @@
+package com.kr.keyboard;
+
+import android.app.Instrumentation;
+import android.inputmethodservice.Keyboard;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.text.Editable;
+import android.view.MotionEvent;
+import android.widget.EditText;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.rule.ActivityTestRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * 验证按键分发路径在预热之后不会额外分配对象
+ * 通过已经 subscribe 的 manager 弹出键盘，向 SecureKeyboardView 发送触摸事件，经过 view -> listener -> Editable 的完整路径
+ * 直接向 Editable 插入相同字符的分配（TextWatcher、span 回调）作为基准，两者之差必须为 0
+ */
+@RunWith(AndroidJUnit4.class)
+public class KeyDispatchAllocationTest {
+
+    private static final int WARM_UP = 500;
+    private static final int KEYSTROKES = 200;
+    private static final int DIGITS = 10;
+
+    @Rule
+    public ActivityTestRule<SoftInputTestActivity> mActivityRule =
+            new ActivityTestRule<>(SoftInputTestActivity.class);
+
+    @Test
+    public void keyCharsAreCached() {
+        for (int code = 0; code <= 255; code++) {
+            assertSame(KeyChars.of(code), KeyChars.of(code));
+        }
+        assertSame(KeyChars.of(0x4E2D), KeyChars.of(0x4E2D));
+        assertEquals("7", KeyChars.of('7').toString());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void touchDispatchAllocatesNothingAfterWarmUp() {
+        final SoftInputTestActivity activity = mActivityRule.getActivity();
+        final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                // 启动时可能已经获得焦点，先移走再移回来，确保经过 subscribe 的焦点监听弹出键盘
+                activity.getSecond().requestFocus();
+                activity.getFirst().requestFocus();
+            }
+        });
+        instrumentation.waitForIdleSync();
+
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                EditText editText = activity.getFirst();
+                SecureKeyboardView keyboardView = activity.getManager().getKeyboardView();
+                assertNotNull("keyboard not shown", keyboardView);
+                assertTrue("keyboard not laid out", keyboardView.getWidth() > 0);
+                Editable editable = editText.getText();
+
+                // 每个数字键一组按下、抬起事件，计数前全部创建好
+                MotionEvent[] downs = new MotionEvent[DIGITS];
+                MotionEvent[] ups = new MotionEvent[DIGITS];
+                CharSequence[] chars = new CharSequence[DIGITS];
+                createDigitEvents(keyboardView, downs, ups, chars);
+
+                // 预热：让 Editable 的缓冲区扩容到足够大，并初始化各处的缓存
+                for (int i = 0; i < WARM_UP; i++) {
+                    tap(keyboardView, downs[i % DIGITS], ups[i % DIGITS]);
+                }
+                assertEquals(WARM_UP, editable.length());
+                editable.clear();
+                for (int i = 0; i < WARM_UP; i++) {
+                    editable.insert(editText.getSelectionStart(), chars[i % DIGITS]);
+                }
+                editable.clear();
+
+                Debug.startAllocCounting();
+
+                Debug.resetThreadAllocCount();
+                for (int i = 0; i < KEYSTROKES; i++) {
+                    editable.insert(editText.getSelectionStart(), chars[i % DIGITS]);
+                }
+                int baseline = Debug.getThreadAllocCount();
+                editable.clear();
+
+                Debug.resetThreadAllocCount();
+                for (int i = 0; i < KEYSTROKES; i++) {
+                    tap(keyboardView, downs[i % DIGITS], ups[i % DIGITS]);
+                }
+                int dispatched = Debug.getThreadAllocCount();
+
+                Debug.stopAllocCounting();
+
+                assertEquals(KEYSTROKES, editable.length());
+                assertEquals("touch dispatch allocated " + dispatched + " objects, Editable alone allocated " + baseline,
+                        0, dispatched - baseline);
+
+                for (int i = 0; i < DIGITS; i++) {
+                    downs[i].recycle();
+                    ups[i].recycle();
+                }
+            }
+        });
+    }
+
+    /**
+     * 找到显示 0 - 9 的按键（打乱后的位置），在按键中心生成触摸事件
+     */
+    private static void createDigitEvents(SecureKeyboardView keyboardView,
+                                          MotionEvent[] downs, MotionEvent[] ups, CharSequence[] chars) {
+        KeyboardLayout layout = keyboardView.getKeyboardLayout();
+        Keyboard.Key[] keys = layout.getKeys();
+        long now = SystemClock.uptimeMillis();
+        for (int i = 0; i < keys.length; i++) {
+            int code = layout.getCode(i);
+            if (code < '0' || code > '9') {
+                continue;
+            }
+            int digit = code - '0';
+            float x = keyboardView.getPaddingLeft() + keys[i].x + keys[i].width / 2f;
+            float y = keyboardView.getPaddingTop() + keys[i].y + keys[i].height / 2f;
+            downs[digit] = MotionEvent.obtain(now, now, MotionEvent.ACTION_DOWN, x, y, 0);
+            ups[digit] = MotionEvent.obtain(now, now, MotionEvent.ACTION_UP, x, y, 0);
+            chars[digit] = KeyChars.of(code);
+        }
+        for (int digit = 0; digit < DIGITS; digit++) {
+            assertNotNull("no key for " + digit, downs[digit]);
+        }
+    }
+
+    private static void tap(SecureKeyboardView keyboardView, MotionEvent down, MotionEvent up) {
+        keyboardView.dispatchTouchEvent(down);
+        keyboardView.dispatchTouchEvent(up);
+    }
+}
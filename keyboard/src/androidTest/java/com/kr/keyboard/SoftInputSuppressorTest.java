@@ -0,0 +1,95 @@
+package com.kr.keyboard;
+
+import android.app.Instrumentation;
+import android.inputmethodservice.Keyboard;
+import android.os.SystemClock;
+import android.text.InputType;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.rule.ActivityTestRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * 统计各种获得焦点、点击和 restartInput 的场景下系统软键盘弹出的次数，应该始终为 0
+ */
+@RunWith(AndroidJUnit4.class)
+public class SoftInputSuppressorTest {
+
+    // 系统软键盘弹出动画的时间
+    private static final long IME_SETTLE_MS = 600;
+
+    @Rule
+    public ActivityTestRule<SoftInputTestActivity> mActivityRule =
+            new ActivityTestRule<>(SoftInputTestActivity.class);
+
+    @Test
+    public void systemImeNeverShows() {
+        final SoftInputTestActivity activity = mActivityRule.getActivity();
+        final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        settle(instrumentation);
+        assertEquals("shown on window focus", 0, activity.getImeShowCount());
+
+        tap(instrumentation, activity.getFirst());
+        tap(instrumentation, activity.getSecond());
+        tap(instrumentation, activity.getFirst());
+        settle(instrumentation);
+        assertEquals("shown on tap", 0, activity.getImeShowCount());
+
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                activity.getManager().onKey(CustomKeyboardManager.KEYCODE_NEXT, null);
+                activity.getManager().onKey(CustomKeyboardManager.KEYCODE_PREVIOUS, null);
+            }
+        });
+        settle(instrumentation);
+        assertEquals("shown on next / previous", 0, activity.getImeShowCount());
+
+        // 修改 inputType 会触发 restartInput
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                activity.getFirst().setInputType(InputType.TYPE_CLASS_TEXT);
+                activity.getFirst().setText("123");
+            }
+        });
+        settle(instrumentation);
+        assertEquals("shown on restartInput", 0, activity.getImeShowCount());
+
+        // 关闭后再次点击
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                activity.getManager().onKey(Keyboard.KEYCODE_DONE, null);
+            }
+        });
+        tap(instrumentation, activity.getFirst());
+        settle(instrumentation);
+        assertEquals("shown after done", 0, activity.getImeShowCount());
+    }
+
+    private static void settle(Instrumentation instrumentation) {
+        instrumentation.waitForIdleSync();
+        SystemClock.sleep(IME_SETTLE_MS);
+        instrumentation.waitForIdleSync();
+    }
+
+    private static void tap(Instrumentation instrumentation, View view) {
+        int[] location = new int[2];
+        view.getLocationOnScreen(location);
+        float x = location[0] + view.getWidth() / 2f;
+        float y = location[1] + view.getHeight() / 2f;
+        long downTime = SystemClock.uptimeMillis();
+        instrumentation.sendPointerSync(MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, x, y, 0));
+        instrumentation.sendPointerSync(MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), MotionEvent.ACTION_UP, x, y, 0));
+        instrumentation.waitForIdleSync();
+    }
+}
@@ -0,0 +1,71 @@
+package com.kr.keyboard;
+
+import android.app.Activity;
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.text.InputType;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+
+/**
+ * 两个共用自定义键盘的输入框，通过 adjustResize 后可见区域的变化统计系统软键盘弹出的次数
+ * stateVisible 模拟窗口获得焦点时系统主动弹出软键盘的情况
+ */
+public class SoftInputTestActivity extends Activity {
+
+    private EditText mFirst;
+    private EditText mSecond;
+    private CustomKeyboardManager mManager;
+    private final Rect mVisibleFrame = new Rect();
+    private boolean mImeShown;
+    private int mImeShowCount;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        LinearLayout content = new LinearLayout(this);
+        content.setOrientation(LinearLayout.VERTICAL);
+        mFirst = new EditText(this);
+        mFirst.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_VARIATION_PASSWORD);
+        mSecond = new EditText(this);
+        content.addView(mFirst);
+        content.addView(mSecond);
+        setContentView(content);
+
+        mManager = new CustomKeyboardManager(mFirst, mSecond);
+        mManager.setKeyboardLayouts(R.xml.keyboard_numeric_form);
+        mManager.subscribe();
+
+        final View root = getWindow().getDecorView();
+        root.getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
+            @Override
+            public void onGlobalLayout() {
+                root.getWindowVisibleDisplayFrame(mVisibleFrame);
+                // 可见区域比窗口矮四分之一以上时认为系统软键盘已经弹出
+                boolean shown = root.getHeight() - mVisibleFrame.height() > root.getHeight() / 4;
+                if (shown && !mImeShown) {
+                    mImeShowCount++;
+                }
+                mImeShown = shown;
+            }
+        });
+    }
+
+    EditText getFirst() {
+        return mFirst;
+    }
+
+    EditText getSecond() {
+        return mSecond;
+    }
+
+    CustomKeyboardManager getManager() {
+        return mManager;
+    }
+
+    int getImeShowCount() {
+        return mImeShowCount;
+    }
+}
@@ -1,44 +1,119 @@
 package com.kr.keyboard;
 
 import android.annotation.SuppressLint;
-import android.app.Dialog;
-import android.graphics.Color;
-import android.graphics.drawable.ColorDrawable;
+import android.app.Activity;
+import android.content.Context;
+import android.content.ContextWrapper;
 import android.inputmethodservice.Keyboard;
 import android.inputmethodservice.KeyboardView;
+import android.os.Build;
+import android.os.SystemClock;
 import android.text.Editable;
-import android.util.Log;
+import android.text.InputType;
+import android.text.method.PasswordTransformationMethod;
 import android.util.SparseIntArray;
-import android.view.Gravity;
-import android.view.LayoutInflater;
 import android.view.View;
-import android.view.ViewGroup;
-import android.view.Window;
-import android.view.WindowManager;
+import android.view.ViewTreeObserver;
 import android.widget.EditText;
-
-import java.lang.reflect.Method;
-import java.util.List;
-import java.util.Random;
+import android.widget.TextView;
 
 /**
  * 自定义软件盘
  * 1.屏蔽截屏和录制屏幕
  * 2.支持随机数字
+ * 3.支持数字、字母、符号、金额键盘之间切换
+ * 4.一组输入框共用一个键盘，焦点在组内移动时只切换输入目标，不关闭弹窗也不重新打乱
+ * 5.非密码输入框可以开启联想
+ * 6.安全输入模式下输入内容只保存在 {@link SecureInputBuffer} 中，输入框只显示掩码
  */
 public final class CustomKeyboardManager implements KeyboardView.OnKeyboardActionListener {
-    private Dialog mPopUpDialog;
+    /**
+     * 焦点移到组内下一个输入框
+     */
+    public static final int KEYCODE_NEXT = -7;
+    /**
+     * 焦点移到组内上一个输入框
+     */
+    public static final int KEYCODE_PREVIOUS = -8;
+
+    private final EditText[] mEditTexts;
+    // 当前接收输入的输入框
     private EditText mEditText;
-    private Keyboard mKeyboard;
-    private boolean mIsCapital = false;
-    private KeyboardView mKeyBoardView;
-    private View mViewHide;
+    // 焦点离开后等待组内其他输入框获得焦点，没有时才关闭键盘
+    private boolean mDetachPending;
+    private final Runnable mDetachTask = new Runnable() {
+        @Override
+        public void run() {
+            if (mDetachPending) {
+                mDetachPending = false;
+                detach();
+            }
+        }
+    };
+    private int[] mLayoutResIds = {R.xml.keyboard_number, R.xml.keyboard_symbols};
+    private int mLayoutIndex;
+    private KeyboardLayout mLayout;
+    private long mLastShiftTime;
+    private int mShuffleScope = KeyShuffler.SCOPE_DIGITS;
+    private KeyboardWindow mWindow;
+    private SecureKeyboardView mKeyBoardView;
+    private KeyboardMetrics mMetrics;
+    // 当前按键回调开始的时间，以及触摸事件到回调开始的耗时，重复按键时为 -1
+    private long mKeyStartNanos;
+    private long mInputNanos;
+    private long mShowStartNanos;
+    private boolean mShowPending;
+    private final ViewTreeObserver.OnPreDrawListener mFirstDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            if (mKeyBoardView != null) {
+                mKeyBoardView.getViewTreeObserver().removeOnPreDrawListener(this);
+            }
+            if (mShowPending && mMetrics != null) {
+                mMetrics.record(KeyboardMetrics.METRIC_SHOW, System.nanoTime() - mShowStartNanos);
+            }
+            mShowPending = false;
+            return true;
+        }
+    };
+    private boolean mBatchEdit;
+    private final TextBatch mBatch = new TextBatch();
+    private boolean mFlushPosted;
+    private long mDeletePressTime;
+    private final Runnable mFlushTask = new Runnable() {
+        @Override
+        public void run() {
+            mFlushPosted = false;
+            flushBatch();
+        }
+    };
+    private boolean mSuggestionsEnabled;
+    // 当前输入框是否显示联想
+    private boolean mSuggestionsActive;
+    private TrieDictionary mDictionary;
+    private String[] mSuggestions;
+    private final View.OnClickListener mSuggestionClickListener = new View.OnClickListener() {
+        @Override
+        public void onClick(View v) {
+            pickSuggestion(((TextView) v).getText());
+        }
+    };
+    // 与 mEditTexts 一一对应，null 表示不是安全输入模式
+    private SecureInputBuffer[] mSecureBuffers;
+    private SecureInputBuffer.Listener mSecureListener;
+    private static final int CAPS_LOCK_TIMEOUT = 300;
+    // 联想时最多向前查找的字母数
+    private static final int MAX_PREFIX_LENGTH = 32;
+    // 按住删除键超过这个时间后按单词删除
+    private static final int WORD_DELETE_DELAY = 1500;
     private static final SparseIntArray UN_PREVIEW_LIST = new SparseIntArray(); // codes in this list 将不会被预览提示
 
     static {
         UN_PREVIEW_LIST.put(Keyboard.KEYCODE_MODE_CHANGE, 1);
         UN_PREVIEW_LIST.put(Keyboard.KEYCODE_DELETE, 1);
         UN_PREVIEW_LIST.put(Keyboard.KEYCODE_SHIFT, 1);
+        UN_PREVIEW_LIST.put(KEYCODE_NEXT, 1);
+        UN_PREVIEW_LIST.put(KEYCODE_PREVIOUS, 1);
         UN_PREVIEW_LIST.put(32, 1);
         //number 0-9 don't preview
         for (int i = 48; i <= 57; i++) {
@@ -47,192 +122,644 @@ public final class CustomKeyboardManager implements KeyboardView.OnKeyboardActio
     }
 
     /**
-     * @param editText 接收软件盘输入内容的 edittext
+     * @param editTexts 接收软件盘输入内容的 edittext，多个时按顺序组成一组，
+     *                  {@link #KEYCODE_NEXT} 和 {@link #KEYCODE_PREVIOUS} 按这个顺序移动焦点
      */
-    public CustomKeyboardManager(EditText editText) {
-        if (editText == null) {
+    public CustomKeyboardManager(EditText... editTexts) {
+        if (editTexts == null || editTexts.length == 0) {
             throw new NullPointerException("EditText can not be nulls");
         }
-        mEditText = editText;
+        for (EditText editText : editTexts) {
+            if (editText == null) {
+                throw new NullPointerException("EditText can not be nulls");
+            }
+        }
+        mEditTexts = editTexts.clone();
+        mEditText = mEditTexts[0];
     }
 
     /**
-     * 初始化自定义软键盘并监听EditText点击事件
+     * 设置每次弹出键盘时需要打乱的按键，需要在 {@link #subscribe()} 之前调用
+     *
+     * @param shuffleScope {@link KeyShuffler#SCOPE_DIGITS} 等的组合，0 表示不打乱，默认只打乱数字键
      */
-    @SuppressLint("ClickableViewAccessibility")
-    public void subscribe() {
-        final View view = LayoutInflater.from(mEditText.getContext()).inflate(R.layout.keyboard_view, null);
+    public void setShuffleScope(int shuffleScope) {
+        mShuffleScope = shuffleScope;
+    }
 
-        if (mPopUpDialog == null) {
-            mPopUpDialog = new Dialog(mEditText.getContext());
+    /**
+     * 设置可以切换的键盘布局，按 {@link Keyboard#KEYCODE_MODE_CHANGE} 时依次切换，需要在 {@link #subscribe()} 之前调用
+     * 默认是字母数字键盘和符号键盘，PIN 输入可以只使用 R.xml.keyboard_numeric，金额输入使用 R.xml.keyboard_amount，
+     * 多个输入框组成的表单可以使用带上一项、下一项的 R.xml.keyboard_numeric_form
+     *
+     * @param xmlLayoutResIds 键盘布局 xml，第一个是默认布局
+     */
+    public void setKeyboardLayouts(int... xmlLayoutResIds) {
+        if (xmlLayoutResIds == null || xmlLayoutResIds.length == 0) {
+            throw new IllegalArgumentException("at least one keyboard layout is required");
         }
+        mLayoutResIds = xmlLayoutResIds.clone();
+        mLayoutIndex = 0;
+    }
 
-        initWindow();
+    /**
+     * 设置批量编辑模式，适合金额、备注等内容较长或者有复杂 TextWatcher 的输入框
+     * 1.一帧内的多次删除和 {@link #onText} 输入合并为一次 Editable 修改，在下一帧提交
+     * 2.按住删除键超过 {@value #WORD_DELETE_DELAY} 毫秒后按单词删除
+     */
+    public void setBatchEdit(boolean batchEdit) {
+        if (!batchEdit) {
+            flushBatch();
+        }
+        mBatchEdit = batchEdit;
+    }
 
-        mPopUpDialog.setContentView(view);
+    /**
+     * 设置是否在键盘上方显示联想词，适合商户搜索、备注等不涉及隐私的输入框，需要在 {@link #subscribe()} 之前调用
+     * 密码、PIN、数字和关闭了输入建议的输入框始终不会显示联想，设置后修改输入类型也会在下次获得焦点时生效
+     */
+    public void setSuggestionsEnabled(boolean suggestionsEnabled) {
+        mSuggestionsEnabled = suggestionsEnabled;
+    }
 
-        mKeyBoardView = view.findViewById(R.id.keyboardview);
-        mViewHide = view.findViewById(R.id.v_hide);
+    /**
+     * 开启安全输入模式，适合 PIN、密码等输入框，需要在 {@link #subscribe()} 之前调用
+     * 1.每个输入框使用一个容量固定的 {@link SecureInputBuffer}，输入框中只显示相同数量的掩码，长按不能粘贴
+     * 2.键盘关闭时把非空的缓冲区交给 listener，回调返回后清零缓冲区和输入框中的掩码
+     * 3.不支持联想和批量编辑，只能在末尾输入和删除
+     *
+     * @param capacity 每个输入框最多输入的字符数
+     */
+    public void setSecureInput(int capacity, SecureInputBuffer.Listener listener) {
+        if (listener == null) {
+            throw new NullPointerException("listener can not be null");
+        }
+        SecureInputBuffer[] buffers = new SecureInputBuffer[mEditTexts.length];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new SecureInputBuffer(capacity);
+        }
+        mSecureBuffers = buffers;
+        mSecureListener = listener;
+    }
+
+    /**
+     * 设置性能统计，null 表示不统计，只记录耗时，不记录按键内容
+     */
+    public void setMetrics(KeyboardMetrics metrics) {
+        mMetrics = metrics;
+    }
 
-        mViewHide.setSelected(false);
-        mViewHide.setOnClickListener(new View.OnClickListener() {
+    /**
+     * 监听EditText焦点变化，键盘布局和弹窗由 {@link KeyboardHost} 共享，获得焦点时才挂载
+     */
+    @SuppressLint("ClickableViewAccessibility")
+    public void subscribe() {
+        View.OnFocusChangeListener focusListener = new View.OnFocusChangeListener() {
             @Override
-            public void onClick(View v) {
-                mViewHide.setSelected(!mViewHide.isSelected());
+            public void onFocusChange(View v, boolean hasFocus) {
+                if (hasFocus) {
+                    // 焦点在组内移动时先失去再获得，取消关闭，只切换输入目标
+                    mDetachPending = false;
+                    retarget((EditText) v);
+                } else if (v == mEditText) {
+                    mDetachPending = true;
+                    v.post(mDetachTask);
+                }
             }
-        });
-        mKeyboard = new Keyboard(mEditText.getContext(), R.xml.keyboard_number);
-        mKeyBoardView.setKeyboard(mKeyboard);
-        mKeyBoardView.setOnKeyboardActionListener(this);
+        };
+        View.OnAttachStateChangeListener attachListener = new View.OnAttachStateChangeListener() {
+            @Override
+            public void onViewAttachedToWindow(View v) {
 
+            }
 
-        mEditText.setOnFocusChangeListener(new View.OnFocusChangeListener() {
             @Override
-            public void onFocusChange(View v, boolean hasFocus) {
-                if (hasFocus) {
-                    if (!mPopUpDialog.isShowing()) {
-                        randomNumberKeys();
-                        mPopUpDialog.show();
-                    }
-                } else {
-                    if (mPopUpDialog.isShowing()) {
-                        mPopUpDialog.dismiss();
+            public void onViewDetachedFromWindow(View v) {
+                if (v == mEditText) {
+                    if (mWindow != null && mWindow.isShowing() && isChangingConfigurations(v)) {
+                        // Activity 重建后焦点恢复时继续显示同一个布局和随机排列
+                        KeyboardHost.getInstance().retainSession(mLayoutResIds[mLayoutIndex]);
                     }
+                    mDetachPending = false;
+                    detach();
                 }
             }
-        });
-        forbidDefaultSoftKeyboard();
+        };
+        for (EditText editText : mEditTexts) {
+            editText.setOnFocusChangeListener(focusListener);
+            editText.addOnAttachStateChangeListener(attachListener);
+            SoftInputSuppressor.suppress(editText);
+            if (mSecureBuffers != null) {
+                // 输入框中的内容必须与缓冲区一致，并且不能从剪贴板粘贴明文
+                editText.getText().clear();
+                editText.setLongClickable(false);
+                // 重建时不恢复掩码，缓冲区已经清零
+                editText.setSaveEnabled(false);
+            }
+        }
+        KeyboardHost.getInstance().prewarm(mEditText, mShuffleScope, mLayoutResIds);
+        if (mSuggestionsEnabled) {
+            KeyboardHost.getInstance().prewarmDictionary(mEditText.getContext());
+        }
+    }
+
+    /**
+     * 切换输入目标，键盘已经显示时只重新挂载，不关闭弹窗也不重新打乱
+     */
+    private void retarget(EditText target) {
+        if (target != mEditText) {
+            // 未提交的修改属于之前的输入框
+            flushBatch();
+            mEditText = target;
+        }
+        attach();
+        SoftInputSuppressor.hide(target);
     }
 
-    private void initWindow() {
-        Window mWindow = mPopUpDialog.getWindow();
-        if (mWindow != null) {
-            mWindow.setWindowAnimations(R.style.PopupAnimation);
-            mWindow.setSoftInputMode(WindowManager.LayoutParams.SOFT_INPUT_STATE_ALWAYS_HIDDEN);
-            mWindow.setGravity(Gravity.BOTTOM | Gravity.FILL_HORIZONTAL);
-            mWindow.setLayout(ViewGroup.LayoutParams.MATCH_PARENT,
-                    ViewGroup.LayoutParams.WRAP_CONTENT);
-            mWindow.setBackgroundDrawable(new ColorDrawable(Color.TRANSPARENT));
+    /**
+     * 焦点移到组内的下一个（或上一个）可以输入的输入框，没有时不移动
+     *
+     * @param step 1 表示下一个，-1 表示上一个
+     */
+    private void moveFocus(int step) {
+        int index = -1;
+        for (int i = 0; i < mEditTexts.length; i++) {
+            if (mEditTexts[i] == mEditText) {
+                index = i;
+                break;
+            }
+        }
+        for (int i = index + step; i >= 0 && i < mEditTexts.length; i += step) {
+            EditText candidate = mEditTexts[i];
+            if (candidate.isShown() && candidate.isEnabled() && candidate.requestFocus()) {
+                return;
+            }
+        }
+    }
 
-            mWindow.setFlags(WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS,
-                    WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS);
-            mWindow.addFlags(WindowManager.LayoutParams.FLAG_SECURE);
-            mWindow.addFlags(WindowManager.LayoutParams.FLAG_NOT_TOUCH_MODAL);
-            mWindow.setDimAmount(0);
+    private void attach() {
+        KeyboardHost host = KeyboardHost.getInstance();
+        boolean restored = false;
+        int retained = host.consumeRetainedSession();
+        for (int i = 0; i < mLayoutResIds.length && retained != 0; i++) {
+            if (mLayoutResIds[i] == retained) {
+                mLayoutIndex = i;
+                restored = true;
+                break;
+            }
+        }
+        boolean handover = !host.isAttached(this);
+        mLayout = host.getLayout(mEditText.getContext(), mLayoutResIds[mLayoutIndex]);
+        mWindow = host.attach(this, mEditText, mLayout);
+        mKeyBoardView = mWindow.getKeyboardView();
+        attachSuggestions(host);
+        boolean showing = mWindow.isShowing();
+        if (!restored && (!showing || handover)) {
+            // 布局对象在所有输入框之间共享，弹出或者从其他输入框接管时先恢复原始排列和小写层，
+            // 再打乱所有可切换的布局，之后切换布局时不需要再打乱
+            long shuffleStart = System.nanoTime();
+            for (int xmlLayoutResId : mLayoutResIds) {
+                KeyboardLayout layout = host.getLayout(mEditText.getContext(), xmlLayoutResId);
+                layout.resetState();
+                if (mShuffleScope != 0) {
+                    layout.getShuffler(mShuffleScope).shuffle(null);
+                }
+            }
+            mKeyBoardView.invalidateAllKeys();
+            if (mShuffleScope != 0 && mMetrics != null) {
+                mMetrics.record(KeyboardMetrics.METRIC_SHUFFLE, System.nanoTime() - shuffleStart);
+            }
+        }
+        if (!showing) {
+            if (mMetrics != null) {
+                mShowStartNanos = System.nanoTime();
+                mShowPending = true;
+                mKeyBoardView.getViewTreeObserver().addOnPreDrawListener(mFirstDrawListener);
+            }
+            mWindow.show();
+            if (mMetrics != null) {
+                mMetrics.onSessionStart(mEditText.getContext());
+            }
+        } else if (handover && mMetrics != null) {
+            // 从另一个管理器接管正在显示的弹窗，它的会话已经在 onReplaced 中结束
+            mMetrics.onSessionStart(mEditText.getContext());
         }
     }
 
+    /**
+     * 弹窗在输入框之间共享，每次挂载时根据当前输入框重新决定是否显示联想栏
+     */
+    private void attachSuggestions(KeyboardHost host) {
+        mSuggestionsActive = mSuggestionsEnabled && mSecureBuffers == null && !isSecretField(mEditText);
+        if (mSuggestionsActive && mDictionary == null) {
+            mDictionary = host.getDictionary(mEditText.getContext());
+            mSuggestionsActive = mDictionary != null;
+        }
+        if (mSuggestionsActive && mSuggestions == null) {
+            mSuggestions = new String[mWindow.getSuggestionCapacity()];
+        }
+        mWindow.setSuggestionsVisible(mSuggestionsActive, mSuggestionClickListener);
+        updateSuggestions();
+    }
 
     /**
-     * 随机数字键
+     * 密码、PIN 等输入框，不能显示联想
      */
-    private void randomNumberKeys() {
-        //洗牌算法来随机排序所有数字键值
-        Random random = new Random();
-        int swapIndex;
-        Keyboard.Key destKey, srcKey;
-        for (int i = 0; i < 10; i++) {
-            swapIndex = random.nextInt(10 - i) + i;
-            destKey = mKeyboard.getKeys().get(swapIndex);
-            srcKey = mKeyboard.getKeys().get(i);
-            CharSequence label = destKey.label;
-            int code = destKey.codes[0];
+    private static boolean isSecretField(EditText editText) {
+        int inputType = editText.getInputType();
+        int inputClass = inputType & InputType.TYPE_MASK_CLASS;
+        int variation = inputType & InputType.TYPE_MASK_VARIATION;
+        if (inputClass != InputType.TYPE_CLASS_TEXT
+                || variation == InputType.TYPE_TEXT_VARIATION_PASSWORD
+                || variation == InputType.TYPE_TEXT_VARIATION_VISIBLE_PASSWORD
+                || variation == InputType.TYPE_TEXT_VARIATION_WEB_PASSWORD
+                || (inputType & InputType.TYPE_TEXT_FLAG_NO_SUGGESTIONS) != 0) {
+            return true;
+        }
+        return editText.getTransformationMethod() instanceof PasswordTransformationMethod;
+    }
 
-            destKey.codes[0] = srcKey.codes[0];
-            destKey.label = srcKey.label;
+    /**
+     * 根据光标前的单词更新联想栏
+     */
+    private void updateSuggestions() {
+        if (!mSuggestionsActive || mWindow == null) {
+            return;
+        }
+        Editable editable = mEditText.getText();
+        int end = mEditText.getSelectionStart();
+        int count = 0;
+        if (editable != null && end >= 0) {
+            int start = wordStart(editable, end);
+            if (start < end) {
+                count = mDictionary.suggest(editable, start, end, mSuggestions);
+            }
+        }
+        mWindow.setSuggestions(mSuggestions, count);
+    }
 
-            srcKey.label = label;
-            srcKey.codes[0] = code;
+    /**
+     * 用联想词替换光标前的单词，并在后面加一个空格
+     */
+    private void pickSuggestion(CharSequence word) {
+        flushBatch();
+        Editable editable = mEditText.getText();
+        int end = mEditText.getSelectionStart();
+        if (!mSuggestionsActive || editable == null || end < 0 || word.length() == 0) {
+            return;
+        }
+        int start = wordStart(editable, end);
+        mEditText.beginBatchEdit();
+        try {
+            editable.replace(start, end, word);
+            editable.insert(start + word.length(), " ");
+        } finally {
+            mEditText.endBatchEdit();
+        }
+        updateSuggestions();
+    }
 
+    private static int wordStart(CharSequence text, int end) {
+        int start = end;
+        while (start > 0 && end - start < MAX_PREFIX_LENGTH && Character.isLetter(text.charAt(start - 1))) {
+            start--;
         }
-        mKeyBoardView.setKeyboard(mKeyboard);
+        return start;
     }
 
+    private static boolean isChangingConfigurations(View view) {
+        Context context = view.getContext();
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) {
+                return ((Activity) context).isChangingConfigurations();
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return false;
+    }
+
+    private void detach() {
+        flushBatch();
+        deliverSecureInput();
+        boolean showing = mWindow != null && mWindow.isShowing();
+        long dismissStart = System.nanoTime();
+        KeyboardHost.getInstance().detach(this);
+        if (showing && !mWindow.isShowing()) {
+            onDismissed(dismissStart);
+        }
+        mWindow = null;
+        mKeyBoardView = null;
+    }
+
+    /**
+     * 焦点直接移到另一个管理器的输入框时由 {@link KeyboardHost#attach} 调用，弹窗仍在显示或者即将由 host 关闭，
+     * 之后延迟执行的 {@link #detach()} 已经不是当前挂载的输入框，无法判断弹窗是否关闭，所以在这里结束会话
+     */
+    void onReplaced() {
+        mDetachPending = false;
+        flushBatch();
+        boolean showing = mWindow != null && mWindow.isShowing();
+        if (mKeyBoardView != null) {
+            mKeyBoardView.getViewTreeObserver().removeOnPreDrawListener(mFirstDrawListener);
+        }
+        mWindow = null;
+        mKeyBoardView = null;
+        mShowPending = false;
+        deliverSecureInput();
+        if (showing && mMetrics != null) {
+            mMetrics.onSessionEnd();
+        }
+    }
+
+    private void dismiss() {
+        boolean showing = mWindow.isShowing();
+        long dismissStart = System.nanoTime();
+        mWindow.dismiss();
+        if (showing) {
+            onDismissed(dismissStart);
+        }
+    }
+
+    private void onDismissed(long dismissStartNanos) {
+        mShowPending = false;
+        deliverSecureInput();
+        if (mMetrics != null) {
+            mMetrics.record(KeyboardMetrics.METRIC_DISMISS, System.nanoTime() - dismissStartNanos);
+            mMetrics.onSessionEnd();
+        }
+    }
+
+    /**
+     * 按键回调开始时记录时间，之后由 {@link #onCommitted(long)} 计算各阶段耗时
+     */
+    private void onKeyStart() {
+        if (mMetrics == null) {
+            return;
+        }
+        mKeyStartNanos = System.nanoTime();
+        long touchTime = mKeyBoardView != null ? mKeyBoardView.getTouchEventTime() : 0;
+        if (touchTime != 0) {
+            mInputNanos = (SystemClock.uptimeMillis() - touchTime) * 1000000L;
+            mMetrics.record(KeyboardMetrics.METRIC_INPUT_TO_KEY, mInputNanos);
+        } else {
+            mInputNanos = -1;
+        }
+    }
+
+    /**
+     * 修改 Editable 之后调用
+     *
+     * @param editStartNanos 开始修改 Editable 的时间
+     */
+    private void onCommitted(long editStartNanos) {
+        if (mMetrics == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        mMetrics.record(KeyboardMetrics.METRIC_EDITABLE_COMMIT, now - editStartNanos);
+        if (mInputNanos >= 0) {
+            mMetrics.record(KeyboardMetrics.METRIC_PRESS_TO_COMMIT, mInputNanos + now - mKeyStartNanos);
+        }
+    }
+
+    private SecureInputBuffer currentSecureBuffer() {
+        for (int i = 0; i < mEditTexts.length; i++) {
+            if (mEditTexts[i] == mEditText) {
+                return mSecureBuffers[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 安全输入模式下只在末尾追加，输入框中追加一个掩码
+     */
+    private void appendSecure(Editable editable, int code) {
+        SecureInputBuffer buffer = currentSecureBuffer();
+        if (buffer == null || editable == null || code < 0 || code > Character.MAX_VALUE || !buffer.append((char) code)) {
+            return;
+        }
+        long editStart = System.nanoTime();
+        editable.append(buffer.masked(), buffer.length() - 1, buffer.length());
+        onCommitted(editStart);
+        if (mEditText.getSelectionStart() != editable.length()) {
+            mEditText.setSelection(editable.length());
+        }
+    }
+
+    private void deleteSecure(Editable editable) {
+        SecureInputBuffer buffer = currentSecureBuffer();
+        if (buffer == null || editable == null || !buffer.deleteLast()) {
+            return;
+        }
+        int length = editable.length();
+        if (length > 0) {
+            long editStart = System.nanoTime();
+            editable.delete(length - 1, length);
+            onCommitted(editStart);
+        }
+    }
+
+    /**
+     * 把非空的缓冲区交给调用方，然后清零缓冲区和输入框中的掩码
+     */
+    private void deliverSecureInput() {
+        if (mSecureBuffers == null) {
+            return;
+        }
+        for (int i = 0; i < mSecureBuffers.length; i++) {
+            SecureInputBuffer buffer = mSecureBuffers[i];
+            if (buffer.length() == 0) {
+                continue;
+            }
+            try {
+                mSecureListener.onSecureInput(mEditTexts[i], buffer);
+            } finally {
+                buffer.clear();
+                mEditTexts[i].getText().clear();
+            }
+        }
+    }
 
     /**
-     * 禁止系统默认的软键盘弹出
+     * 在下一帧提交累计的修改
      */
-    private void forbidDefaultSoftKeyboard() {
-        if (mEditText == null) {
+    private void scheduleFlush() {
+        if (mFlushPosted) {
+            return;
+        }
+        mFlushPosted = true;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mEditText.postOnAnimation(mFlushTask);
+        } else {
+            mEditText.post(mFlushTask);
+        }
+    }
+
+    /**
+     * 立即提交累计的修改，相当于输入法的 beginBatchEdit / endBatchEdit
+     */
+    private void flushBatch() {
+        if (mFlushPosted) {
+            mFlushPosted = false;
+            mEditText.removeCallbacks(mFlushTask);
+        }
+        if (mBatch.isEmpty()) {
+            return;
+        }
+        Editable editable = mEditText.getText();
+        if (editable == null) {
+            mBatch.clear();
             return;
         }
+        long editStart = System.nanoTime();
+        boolean changed;
+        mEditText.beginBatchEdit();
         try {
-            Class<EditText> cls = EditText.class;
-            Method setShowSoftInputOnFocus;
-            setShowSoftInputOnFocus = cls.getMethod("setShowSoftInputOnFocus", boolean.class);
-            setShowSoftInputOnFocus.setAccessible(true);
-            setShowSoftInputOnFocus.invoke(mEditText, false);
-        } catch (Exception e) {
-            e.printStackTrace();
+            changed = mBatch.apply(editable, mEditText.getSelectionStart());
+        } finally {
+            mEditText.endBatchEdit();
         }
+        if (changed) {
+            onCommitted(editStart);
+        }
+        updateSuggestions();
     }
 
+    private void deleteBatched(Editable editable, int start) {
+        if (editable == null || start < 0) {
+            return;
+        }
+        int count = 1;
+        if (mDeletePressTime != 0 && SystemClock.uptimeMillis() - mDeletePressTime >= WORD_DELETE_DELAY) {
+            // 按单词删除需要知道提交后的文字，先提交插入
+            if (mBatch.getInsertLength() > 0) {
+                flushBatch();
+                start = mEditText.getSelectionStart();
+            }
+            count = TextBatch.wordLengthBefore(editable, Math.max(0, start - mBatch.getDeleteCount()));
+        } else if (start - mBatch.getDeleteCount() + mBatch.getInsertLength() <= 0) {
+            count = 0;
+        }
+        if (count > 0) {
+            mBatch.delete(count);
+            scheduleFlush();
+        }
+    }
+
+    private void insertBatched(CharSequence text) {
+        mBatch.insert(text);
+        scheduleFlush();
+    }
+
+    /**
+     * 当前显示的键盘视图，没有显示时为 null，测试使用
+     */
+    SecureKeyboardView getKeyboardView() {
+        return mKeyBoardView;
+    }
 
     @Override
     public void onPress(int primaryCode) {
         setPreview(primaryCode);
+        if (primaryCode == Keyboard.KEYCODE_DELETE) {
+            mDeletePressTime = SystemClock.uptimeMillis();
+        }
     }
 
     @Override
     public void onRelease(int primaryCode) {
-
+        if (primaryCode == Keyboard.KEYCODE_DELETE) {
+            mDeletePressTime = 0;
+        }
     }
 
     /**
-     * 将大小字母进行互换
+     * 切换大小写层：小写 -> 大写（输入一个字符后恢复小写），连按两次 -> 大写锁定，再按一次恢复小写
+     * 各层在加载键盘时已经生成，这里只修改当前层
      */
-    private void shiftEnglish() {
-        List<Keyboard.Key> keyList = mKeyboard.getKeys();
-        for (Keyboard.Key key : keyList) {
-            if (key.label != null) {
-                Log.d("key", key.label.toString());
-            }
+    private void shift() {
+        long now = SystemClock.uptimeMillis();
+        int layer = KeyLayers.shiftLayer(mLayout.getLayer(), now - mLastShiftTime < CAPS_LOCK_TIMEOUT);
+        mLastShiftTime = now;
+        setLayer(layer);
+    }
 
-            if (key.label != null && isLetter(key.label.toString())) {
-                if (mIsCapital) {
-                    key.label = key.label.toString().toLowerCase();
-                    key.codes[0] = key.codes[0] + 32;
-                } else {
-                    key.label = key.label.toString().toUpperCase();
-                    key.codes[0] = key.codes[0] - 32;
-                }
-            }
+    /**
+     * 切换到另一个键盘布局，布局已经解析并缓存，只替换键盘视图上的布局
+     */
+    private void switchLayout(int layoutIndex) {
+        if (layoutIndex == mLayoutIndex) {
+            return;
         }
-        mIsCapital = !mIsCapital;
+        mLayoutIndex = layoutIndex;
+        mLayout = KeyboardHost.getInstance().getLayout(mEditText.getContext(), mLayoutResIds[layoutIndex]);
+        mKeyBoardView.setKeyboardLayout(mLayout);
     }
 
-
-    private boolean isLetter(String key) {
-        String lowercase = "abcdefghijklmnopqrstuvwxyz";
-        return lowercase.contains(key.toLowerCase());
+    private void setLayer(int layer) {
+        if (mLayout.getLayer() != layer) {
+            mLayout.setLayer(layer);
+            mKeyBoardView.invalidateAllKeys();
+        }
     }
 
     @Override
     public void onKey(int primaryCode, int[] keyCodes) {
         Editable editable = mEditText.getText();
         int start = mEditText.getSelectionStart();
+        onKeyStart();
 
         switch (primaryCode) {
             case Keyboard.KEYCODE_MODE_CHANGE:// 英文键盘与数字键盘切换-2
-//                shiftKeyboard();
+                switchLayout((mLayoutIndex + 1) % mLayoutResIds.length);
                 break;
             case Keyboard.KEYCODE_DELETE:// 回退-5
-                if (editable != null && editable.length() > 0 && start > 0) {
+                if (mSecureBuffers != null) {
+                    deleteSecure(editable);
+                } else if (mBatchEdit) {
+                    deleteBatched(editable, start);
+                } else if (editable != null && editable.length() > 0 && start > 0) {
+                    long editStart = System.nanoTime();
                     editable.delete(start - 1, start);
+                    onCommitted(editStart);
                 }
                 break;
             case Keyboard.KEYCODE_SHIFT:// 英文大小写切换-1
-                shiftEnglish();
-                mKeyBoardView.setKeyboard(mKeyboard);
+                shift();
                 break;
             case Keyboard.KEYCODE_DONE:// 完成-4
-                mPopUpDialog.dismiss();
+                flushBatch();
+                dismiss();
+                break;
+            case KEYCODE_NEXT:// 下一项-7
+                moveFocus(1);
+                break;
+            case KEYCODE_PREVIOUS:// 上一项-8
+                moveFocus(-1);
                 break;
 
             default:
-                editable.insert(start, Character.toString((char) primaryCode));
+                // 布局可以通过 setKeyboardLayouts 传入，code 可能是补充平面的码点
+                CharSequence text = KeyChars.ofCodePoint(primaryCode);
+                if (primaryCode >= 0 && mSecureBuffers != null) {
+                    appendSecure(editable, primaryCode);
+                } else if (text != null && mBatchEdit) {
+                    insertBatched(text);
+                } else if (text != null) {
+                    long editStart = System.nanoTime();
+                    editable.insert(start, text);
+                    onCommitted(editStart);
+                }
+                if (mLayout != null) {
+                    setLayer(KeyLayers.layerAfterCharacter(mLayout.getLayer()));
+                }
                 break;
         }
+        // 批量模式在提交时更新
+        if (!mBatchEdit) {
+            updateSuggestions();
+        }
     }
 
 
@@ -242,20 +769,30 @@ public final class CustomKeyboardManager implements KeyboardView.OnKeyboardActio
      * @param primaryCode keyCode
      */
     private void setPreview(int primaryCode) {
-        if (mViewHide.isSelected()) {
-            if (UN_PREVIEW_LIST.get(primaryCode) > 0) {
-                mKeyBoardView.setPreviewEnabled(false);
-            } else {
-                mKeyBoardView.setPreviewEnabled(true);
-            }
-        } else {
-            mKeyBoardView.setPreviewEnabled(false);
+        boolean previewEnabled = mWindow.isPreviewAllowed() && UN_PREVIEW_LIST.get(primaryCode) == 0;
+        //只有状态变化时才修改，避免每次按键都重新设置预览弹窗
+        if (mKeyBoardView.isPreviewEnabled() != previewEnabled) {
+            mKeyBoardView.setPreviewEnabled(previewEnabled);
         }
     }
 
     @Override
     public void onText(CharSequence text) {
-
+        Editable editable = mEditText.getText();
+        int start = mEditText.getSelectionStart();
+        onKeyStart();
+        if (mSecureBuffers != null) {
+            for (int i = 0; i < text.length(); i++) {
+                appendSecure(editable, text.charAt(i));
+            }
+        } else if (mBatchEdit) {
+            insertBatched(text);
+        } else if (editable != null && start >= 0) {
+            long editStart = System.nanoTime();
+            editable.insert(start, text);
+            onCommitted(editStart);
+            updateSuggestions();
+        }
     }
 
     @Override
@@ -0,0 +1,60 @@
+package com.kr.keyboard;
+
+/**
+ * 按键码到单字符 CharSequence 的缓存，输入时不再为每次按键创建字符串
+ * ASCII 在类加载时生成，其余字符按 256 个一页在第一次使用时生成
+ */
+final class KeyChars {
+
+    private static final int PAGE_SHIFT = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static final String[][] PAGES = new String[(Character.MAX_VALUE + 1) >> PAGE_SHIFT][];
+
+    static {
+        // 0x00-0xFF 覆盖数字、字母和常用符号
+        PAGES[0] = createPage(0);
+    }
+
+    private KeyChars() {
+    }
+
+    /**
+     * @param code 按键码，必须是一个 char
+     * @return 只包含该字符的 CharSequence，相同的 code 总是返回同一个实例
+     */
+    static CharSequence of(int code) {
+        if (code < 0 || code > Character.MAX_VALUE) {
+            throw new IllegalArgumentException("code is not a char: " + code);
+        }
+        int pageIndex = code >> PAGE_SHIFT;
+        String[] page = PAGES[pageIndex];
+        if (page == null) {
+            page = createPage(pageIndex);
+            PAGES[pageIndex] = page;
+        }
+        return page[code & PAGE_MASK];
+    }
+
+    /**
+     * 任意码点的字符，BMP 内的字符使用 {@link #of} 的缓存，补充平面的字符（例如 emoji）每次新建
+     *
+     * @return code 不是有效的码点时返回 null
+     */
+    static CharSequence ofCodePoint(int code) {
+        if (code >= 0 && code <= Character.MAX_VALUE) {
+            return of(code);
+        }
+        return Character.isValidCodePoint(code) ? new String(Character.toChars(code)) : null;
+    }
+
+    private static String[] createPage(int pageIndex) {
+        String[] page = new String[PAGE_SIZE];
+        int base = pageIndex << PAGE_SHIFT;
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            page[i] = String.valueOf((char) (base + i));
+        }
+        return page;
+    }
+}
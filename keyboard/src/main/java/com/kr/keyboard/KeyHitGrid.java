@@ -0,0 +1,201 @@
+package com.kr.keyboard;
+
+import java.util.Arrays;
+
+/**
+ * 触摸点到按键的索引，每个布局只建立一次
+ * 1.键盘区域划分为均匀的网格，每个格子记录与它相交的按键（包括按键的触摸扩展范围），查找时只检查一个格子，O(1)
+ * 2.格子边长是最小按键边长的一半，不考虑扩展范围时一个格子最多与 4 个按键相交；
+ *   扩展范围较大时相交的按键更多，格子装满时所有格子的容量加倍，不会丢弃任何按键
+ * 3.每个按键可以单独设置触摸扩展范围，落在按键之外但在扩展范围内时选择距离最近的按键，修改时只更新这个按键涉及的格子
+ * 坐标不包含 padding，全部使用 int 数组，查找时不分配对象，不依赖 Android
+ */
+final class KeyHitGrid {
+
+    static final int NOT_A_KEY = -1;
+
+    // 每个格子初始的容量，装满时加倍
+    static final int INITIAL_SLOTS = 8;
+
+    private final int[] mBounds;
+    private final int[] mSlops;
+    private final int mKeyCount;
+    private final int mCellSize;
+    private final int mColumns;
+    private final int mRows;
+    private int mSlots = INITIAL_SLOTS;
+    // [格子 * mSlots + i] -> 按键下标，未使用的位置为 NOT_A_KEY
+    private int[] mCells;
+
+    /**
+     * @param bounds 每个按键 4 个 int：left, top, right, bottom，数组会被复制
+     * @param width  键盘内容宽度
+     * @param height 键盘内容高度
+     */
+    KeyHitGrid(int[] bounds, int width, int height) {
+        mKeyCount = bounds.length / 4;
+        mBounds = bounds.clone();
+        mSlops = new int[mKeyCount];
+        int minSide = Integer.MAX_VALUE;
+        for (int i = 0; i < mKeyCount; i++) {
+            int offset = i * 4;
+            int side = Math.min(mBounds[offset + 2] - mBounds[offset], mBounds[offset + 3] - mBounds[offset + 1]);
+            // 忽略没有大小的按键，避免格子过小
+            if (side > 0) {
+                minSide = Math.min(minSide, side);
+            }
+        }
+        mCellSize = minSide == Integer.MAX_VALUE ? Math.max(1, Math.max(width, height)) : Math.max(1, minSide / 2);
+        mColumns = Math.max(1, (width + mCellSize - 1) / mCellSize);
+        mRows = Math.max(1, (height + mCellSize - 1) / mCellSize);
+        mCells = new int[mColumns * mRows * mSlots];
+        Arrays.fill(mCells, NOT_A_KEY);
+        for (int i = 0; i < mKeyCount; i++) {
+            addKey(i);
+        }
+    }
+
+    int getKeyCount() {
+        return mKeyCount;
+    }
+
+    /**
+     * @return 每个格子当前的容量
+     */
+    int getSlots() {
+        return mSlots;
+    }
+
+    int getSlop(int keyIndex) {
+        return mSlops[keyIndex];
+    }
+
+    /**
+     * 修改按键的触摸扩展范围，只更新扩展前后涉及的格子
+     */
+    void setSlop(int keyIndex, int slop) {
+        if (keyIndex < 0 || keyIndex >= mKeyCount) {
+            throw new IndexOutOfBoundsException("keyIndex: " + keyIndex);
+        }
+        slop = Math.max(0, slop);
+        if (mSlops[keyIndex] == slop) {
+            return;
+        }
+        removeKey(keyIndex);
+        mSlops[keyIndex] = slop;
+        addKey(keyIndex);
+    }
+
+    /**
+     * @return 按键下标，没有按键时返回 {@link #NOT_A_KEY}
+     */
+    int findKey(int x, int y) {
+        int column = clamp(x / mCellSize, mColumns);
+        int row = clamp(y / mCellSize, mRows);
+        int cell = (row * mColumns + column) * mSlots;
+        int nearest = NOT_A_KEY;
+        long nearestDistance = Long.MAX_VALUE;
+        for (int i = 0; i < mSlots; i++) {
+            int key = mCells[cell + i];
+            if (key == NOT_A_KEY) {
+                break;
+            }
+            int offset = key * 4;
+            int dx = distance(x, mBounds[offset], mBounds[offset + 2]);
+            int dy = distance(y, mBounds[offset + 1], mBounds[offset + 3]);
+            if (dx == 0 && dy == 0) {
+                return key;
+            }
+            int slop = mSlops[key];
+            if (dx <= slop && dy <= slop) {
+                long d = (long) dx * dx + (long) dy * dy;
+                if (d < nearestDistance) {
+                    nearestDistance = d;
+                    nearest = key;
+                }
+            }
+        }
+        return nearest;
+    }
+
+    private void addKey(int keyIndex) {
+        int offset = keyIndex * 4;
+        int slop = mSlops[keyIndex];
+        int left = clamp((mBounds[offset] - slop) / mCellSize, mColumns);
+        int top = clamp((mBounds[offset + 1] - slop) / mCellSize, mRows);
+        // right、bottom 不包含在按键内
+        int right = clamp((mBounds[offset + 2] + slop - 1) / mCellSize, mColumns);
+        int bottom = clamp((mBounds[offset + 3] + slop - 1) / mCellSize, mRows);
+        for (int row = top; row <= bottom; row++) {
+            for (int column = left; column <= right; column++) {
+                int index = row * mColumns + column;
+                if (mCells[(index + 1) * mSlots - 1] != NOT_A_KEY) {
+                    grow();
+                }
+                int cell = index * mSlots;
+                for (int i = 0; i < mSlots; i++) {
+                    if (mCells[cell + i] == NOT_A_KEY) {
+                        mCells[cell + i] = keyIndex;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 所有格子的容量加倍，只在建立索引和修改扩展范围时发生，查找时不会分配
+     */
+    private void grow() {
+        int slots = mSlots * 2;
+        int[] cells = new int[mColumns * mRows * slots];
+        Arrays.fill(cells, NOT_A_KEY);
+        for (int cell = 0; cell < mColumns * mRows; cell++) {
+            System.arraycopy(mCells, cell * mSlots, cells, cell * slots, mSlots);
+        }
+        mSlots = slots;
+        mCells = cells;
+    }
+
+    private void removeKey(int keyIndex) {
+        int offset = keyIndex * 4;
+        int slop = mSlops[keyIndex];
+        int left = clamp((mBounds[offset] - slop) / mCellSize, mColumns);
+        int top = clamp((mBounds[offset + 1] - slop) / mCellSize, mRows);
+        int right = clamp((mBounds[offset + 2] + slop - 1) / mCellSize, mColumns);
+        int bottom = clamp((mBounds[offset + 3] + slop - 1) / mCellSize, mRows);
+        for (int row = top; row <= bottom; row++) {
+            for (int column = left; column <= right; column++) {
+                int cell = (row * mColumns + column) * mSlots;
+                // 删除后把后面的按键前移，保持未使用的位置在末尾
+                int write = 0;
+                for (int i = 0; i < mSlots; i++) {
+                    int key = mCells[cell + i];
+                    if (key != keyIndex) {
+                        mCells[cell + write++] = key;
+                    }
+                }
+                while (write < mSlots) {
+                    mCells[cell + write++] = NOT_A_KEY;
+                }
+            }
+        }
+    }
+
+    /**
+     * 点到区间 [start, end) 的距离，在区间内为 0
+     */
+    private static int distance(int value, int start, int end) {
+        if (value < start) {
+            return start - value;
+        }
+        if (value >= end) {
+            return value - end + 1;
+        }
+        return 0;
+    }
+
+    private static int clamp(int index, int count) {
+        return index < 0 ? 0 : index >= count ? count - 1 : index;
+    }
+}
@@ -0,0 +1,107 @@
+package com.kr.keyboard;
+
+/**
+ * 按键在各个层（小写、大写、大写锁定）的 code 和 label 表，以及按键到内容的索引表
+ * 符号通过 KEYCODE_MODE_CHANGE 切换到 keyboard_symbols 布局输入，不在层中
+ * 不依赖 Android，可以在 JVM 上做基准测试
+ */
+final class KeyLayers {
+
+    static final int LAYER_NORMAL = 0;
+    static final int LAYER_SHIFT = 1;
+    static final int LAYER_CAPS_LOCK = 2;
+    private static final int LAYER_COUNT = 3;
+
+    // [层][原始内容下标]
+    private final int[][] mLayerCodes = new int[LAYER_COUNT][];
+    private final CharSequence[][] mLayerLabels = new CharSequence[LAYER_COUNT][];
+    // 按键下标 -> 当前显示的原始内容下标
+    private final int[] mContent;
+    private int mLayer = LAYER_NORMAL;
+
+    /**
+     * @param codes       每个按键小写层的 code
+     * @param labels 每个按键小写层的 label，图标按键为 null
+     */
+    KeyLayers(int[] codes, CharSequence[] labels) {
+        int count = codes.length;
+        mContent = new int[count];
+        for (int layer = 0; layer < LAYER_COUNT; layer++) {
+            mLayerCodes[layer] = new int[count];
+            mLayerLabels[layer] = new CharSequence[count];
+        }
+
+        for (int i = 0; i < count; i++) {
+            int code = codes[i];
+            CharSequence label = labels[i];
+            mContent[i] = i;
+
+            mLayerCodes[LAYER_NORMAL][i] = code;
+            mLayerLabels[LAYER_NORMAL][i] = label;
+
+            int upperCode = code;
+            CharSequence upperLabel = label;
+            if (code >= 'a' && code <= 'z') {
+                upperCode = code - 'a' + 'A';
+                upperLabel = KeyChars.of(upperCode);
+            }
+            mLayerCodes[LAYER_SHIFT][i] = upperCode;
+            mLayerLabels[LAYER_SHIFT][i] = upperLabel;
+            mLayerCodes[LAYER_CAPS_LOCK][i] = upperCode;
+            mLayerLabels[LAYER_CAPS_LOCK][i] = upperLabel;
+        }
+    }
+
+    int getBaseCode(int contentIndex) {
+        return mLayerCodes[LAYER_NORMAL][contentIndex];
+    }
+
+    int getCode(int keyIndex) {
+        return mLayerCodes[mLayer][mContent[keyIndex]];
+    }
+
+    CharSequence getLabel(int keyIndex) {
+        return mLayerLabels[mLayer][mContent[keyIndex]];
+    }
+
+    int getLayer() {
+        return mLayer;
+    }
+
+    void setLayer(int layer) {
+        if (layer < 0 || layer >= LAYER_COUNT) {
+            throw new IndexOutOfBoundsException("layer: " + layer);
+        }
+        mLayer = layer;
+    }
+
+    void setContent(int keyIndex, int contentIndex) {
+        mContent[keyIndex] = contentIndex;
+    }
+
+    int getContent(int keyIndex) {
+        return mContent[keyIndex];
+    }
+
+    /**
+     * 按下 shift 后的层：小写 -> 大写（输入一个字符后恢复小写），连按两次 -> 大写锁定，再按一次恢复小写
+     *
+     * @param doubleTap 距离上一次按 shift 是否在连按的时间内
+     */
+    static int shiftLayer(int layer, boolean doubleTap) {
+        if (layer == LAYER_SHIFT && doubleTap) {
+            return LAYER_CAPS_LOCK;
+        }
+        if (layer == LAYER_NORMAL) {
+            return LAYER_SHIFT;
+        }
+        return LAYER_NORMAL;
+    }
+
+    /**
+     * 输入一个字符后的层，单次大写恢复小写
+     */
+    static int layerAfterCharacter(int layer) {
+        return layer == LAYER_SHIFT ? LAYER_NORMAL : layer;
+    }
+}
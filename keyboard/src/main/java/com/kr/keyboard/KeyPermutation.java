@@ -0,0 +1,34 @@
+package com.kr.keyboard;
+
+import java.util.Random;
+
+/**
+ * 随机键盘使用的排列算法，不依赖 Android，可以在 JVM 上做基准测试
+ */
+final class KeyPermutation {
+
+    private KeyPermutation() {
+    }
+
+    /**
+     * 分组 Fisher-Yates 洗牌，结果写入 out：第 i 个位置显示第 out[i] 个位置的原始内容
+     *
+     * @param out       长度等于参与打乱的位置数量的输出数组
+     * @param groupEnds 每个分组的结束位置，只在分组内部交换
+     */
+    static void permute(int[] out, int[] groupEnds, Random random) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = i;
+        }
+        int groupStart = 0;
+        for (int groupEnd : groupEnds) {
+            for (int i = groupEnd - 1; i > groupStart; i--) {
+                int j = groupStart + random.nextInt(i - groupStart + 1);
+                int temp = out[i];
+                out[i] = out[j];
+                out[j] = temp;
+            }
+            groupStart = groupEnd;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.kr.keyboard;
+
+import android.inputmethodservice.Keyboard;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 随机键盘的洗牌器
+ * 1.所有洗牌器共用一个 {@link SecureRandom}，并定期重新播种
+ * 2.下一次的排列在后台线程提前算好，主线程只需要修改按键标签
+ * 3.支持打乱数字键、字母键，或者在每一行内打乱所有字符键
+ */
+public final class KeyShuffler {
+
+    /**
+     * 打乱 0-9 数字键
+     */
+    public static final int SCOPE_DIGITS = 1;
+    /**
+     * 打乱 a-z 字母键
+     */
+    public static final int SCOPE_LETTERS = 1 << 1;
+    /**
+     * 在每一行内打乱所有字符键，设置后忽略 {@link #SCOPE_DIGITS} 和 {@link #SCOPE_LETTERS}
+     */
+    public static final int SCOPE_ROWS = 1 << 2;
+
+    private static final int RESEED_INTERVAL = 64;
+    private static final int SEED_BYTES = 32;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static int sPermutationCount;
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "KeyShuffler");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final KeyboardLayout mLayout;
+    // 参与打乱的按键下标，按分组连续存放
+    private final int[] mSlots;
+    // 每个分组在 mSlots 中的结束位置
+    private final int[] mGroupEnds;
+
+    // mCurrent 只在主线程使用，mNext 只在 mPending 且 !mNextReady 时由后台线程写入
+    private int[] mCurrent;
+    private int[] mNext;
+    private volatile boolean mNextReady;
+    private boolean mPending;
+
+    private final Runnable mPrepareTask = new Runnable() {
+        @Override
+        public void run() {
+            reseedIfNeeded();
+            KeyPermutation.permute(mNext, mGroupEnds, RANDOM);
+            mNextReady = true;
+        }
+    };
+
+    KeyShuffler(KeyboardLayout layout, int scope) {
+        mLayout = layout;
+        int count = layout.getKeyCount();
+        int[] slots = new int[count];
+        int[] groupEnds = new int[count + 2];
+        int slotCount = 0;
+        int groupCount = 0;
+
+        // 输出文本的按键（例如金额键盘的 00）不参与打乱
+        Keyboard.Key[] keys = layout.getKeys();
+        if ((scope & SCOPE_ROWS) != 0) {
+            int rowY = Integer.MIN_VALUE;
+            for (int i = 0; i < count; i++) {
+                if (keys[i].y != rowY) {
+                    if (slotCount > 0 && (groupCount == 0 || groupEnds[groupCount - 1] != slotCount)) {
+                        groupEnds[groupCount++] = slotCount;
+                    }
+                    rowY = keys[i].y;
+                }
+                if (keys[i].text == null && isCharacter(layout.getBaseCode(i))) {
+                    slots[slotCount++] = i;
+                }
+            }
+        } else {
+            if ((scope & SCOPE_DIGITS) != 0) {
+                for (int i = 0; i < count; i++) {
+                    int code = layout.getBaseCode(i);
+                    if (keys[i].text == null && code >= '0' && code <= '9') {
+                        slots[slotCount++] = i;
+                    }
+                }
+                groupEnds[groupCount++] = slotCount;
+            }
+            if ((scope & SCOPE_LETTERS) != 0) {
+                for (int i = 0; i < count; i++) {
+                    int code = layout.getBaseCode(i);
+                    if (keys[i].text == null && ((code >= 'a' && code <= 'z') || (code >= 'A' && code <= 'Z'))) {
+                        slots[slotCount++] = i;
+                    }
+                }
+                groupEnds[groupCount++] = slotCount;
+            }
+        }
+        if (slotCount > 0 && (groupCount == 0 || groupEnds[groupCount - 1] != slotCount)) {
+            groupEnds[groupCount++] = slotCount;
+        }
+
+        mSlots = new int[slotCount];
+        System.arraycopy(slots, 0, mSlots, 0, slotCount);
+        mGroupEnds = new int[groupCount];
+        System.arraycopy(groupEnds, 0, mGroupEnds, 0, groupCount);
+        mCurrent = new int[slotCount];
+        mNext = new int[slotCount];
+    }
+
+    private static boolean isCharacter(int code) {
+        return code > 0 && !Character.isWhitespace(code);
+    }
+
+    /**
+     * 在后台线程准备下一次的排列，已经在准备或者已经准备好时直接返回
+     */
+    void prepare() {
+        if (mPending || mSlots.length == 0) {
+            return;
+        }
+        mPending = true;
+        EXECUTOR.execute(mPrepareTask);
+    }
+
+    /**
+     * 打乱按键并刷新对应的按键区域，需要在主线程调用
+     * 后台的排列还没算好时直接在当前线程计算，保证每次弹出都是新的排列
+     */
+    void shuffle(SecureKeyboardView keyboardView) {
+        if (mNextReady) {
+            int[] temp = mCurrent;
+            mCurrent = mNext;
+            mNext = temp;
+            mNextReady = false;
+            mPending = false;
+        } else {
+            KeyPermutation.permute(mCurrent, mGroupEnds, RANDOM);
+        }
+
+        final int[] slots = mSlots;
+        final int[] current = mCurrent;
+        for (int i = 0; i < slots.length; i++) {
+            mLayout.setContent(slots[i], slots[current[i]]);
+            if (keyboardView != null) {
+                keyboardView.invalidateKey(slots[i]);
+            }
+        }
+        prepare();
+    }
+
+    private static void reseedIfNeeded() {
+        synchronized (RANDOM) {
+            if (++sPermutationCount >= RESEED_INTERVAL) {
+                sPermutationCount = 0;
+                RANDOM.setSeed(RANDOM.generateSeed(SEED_BYTES));
+            }
+        }
+    }
+}
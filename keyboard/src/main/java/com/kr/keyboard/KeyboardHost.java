@@ -0,0 +1,394 @@
+package com.kr.keyboard;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.inputmethodservice.Keyboard;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 进程内共享的键盘宿主
+ * 1.每个键盘 xml 只解析一次，解析结果在所有输入框之间共享
+ * 2.每个窗口只创建一个键盘弹窗，获得焦点的输入框再挂载到这个弹窗上
+ * 3.联想词典内存映射后在进程内共享
+ * 4.键盘 xml 可以在后台预编译为快照，之后从快照恢复，不再在主线程解析 xml
+ * 5.解析结果与随机排列在进程内保留，旋转后换用对应屏幕宽度的布局并沿用当前的随机排列，
+ * 配置变化重建 Activity 后第一次弹出时不重新打乱
+ * 只能在主线程调用
+ */
+public final class KeyboardHost {
+
+    private static final String DICTIONARY_ASSET = "suggestions.dict";
+
+    // 配置变化时保留的键盘会话的有效期，超过后重新弹出时照常打乱
+    private static final long RETAIN_TIMEOUT = 5 * 1000;
+
+    private static KeyboardHost sInstance;
+
+    private final SparseArray<KeyboardLayout> mLayouts = new SparseArray<>();
+    // 布局解析时的屏幕宽度，以及另一个方向（旋转前）的布局
+    private final SparseIntArray mLayoutWidths = new SparseIntArray();
+    private final SparseArray<KeyboardLayout> mOtherLayouts = new SparseArray<>();
+    private final SparseIntArray mOtherLayoutWidths = new SparseIntArray();
+    // 后台编译完成、还没有使用的快照及其屏幕宽度，只在主线程访问
+    private final SparseArray<KeyboardSnapshot> mSnapshots = new SparseArray<>();
+    private final SparseIntArray mSnapshotWidths = new SparseIntArray();
+
+    private int mRetainedLayoutResId;
+    private long mRetainedUntil;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private CustomKeyboardManager mAttached;
+    private KeyboardWindow mAttachedWindow;
+
+    private TrieDictionary mDictionary;
+    private boolean mDictionaryFailed;
+
+    private KeyboardHost() {
+    }
+
+    public static KeyboardHost getInstance() {
+        if (sInstance == null) {
+            sInstance = new KeyboardHost();
+        }
+        return sInstance;
+    }
+
+    /**
+     * 获取已解析的键盘布局，第一次调用时才解析 xml
+     *
+     * @param xmlLayoutResId 键盘布局 xml
+     */
+    public Keyboard getKeyboard(Context context, int xmlLayoutResId) {
+        return getLayout(context, xmlLayoutResId).getKeyboard();
+    }
+
+    /**
+     * 设置按键的触摸扩展范围，触摸点落在按键之间的空隙时选择扩展范围内最近的按键，
+     * 对所有使用这个布局的输入框生效，随机排列后跟随按键内容
+     *
+     * @param xmlLayoutResId 键盘布局 xml
+     * @param code           按键在小写层的 code，例如 {@link Keyboard#KEYCODE_DELETE}
+     * @param slopPx         扩展范围，像素
+     */
+    public void setKeyTouchSlop(Context context, int xmlLayoutResId, int code, int slopPx) {
+        getLayout(context, xmlLayoutResId).setKeySlop(code, slopPx);
+    }
+
+    /**
+     * 获取当前屏幕宽度下的布局，宽度变化（旋转）时换用对应宽度的布局，并沿用之前的随机排列、层和触摸范围
+     */
+    KeyboardLayout getLayout(Context context, int xmlLayoutResId) {
+        Context appContext = context.getApplicationContext();
+        int width = appContext.getResources().getDisplayMetrics().widthPixels;
+        KeyboardLayout layout = mLayouts.get(xmlLayoutResId);
+        if (layout != null && mLayoutWidths.get(xmlLayoutResId) == width) {
+            return layout;
+        }
+        KeyboardLayout other = mOtherLayouts.get(xmlLayoutResId);
+        KeyboardLayout next = other != null && mOtherLayoutWidths.get(xmlLayoutResId) == width
+                ? other : createLayout(appContext, xmlLayoutResId, width);
+        if (layout != null) {
+            next.copyStateFrom(layout);
+            mOtherLayouts.put(xmlLayoutResId, layout);
+            mOtherLayoutWidths.put(xmlLayoutResId, mLayoutWidths.get(xmlLayoutResId));
+        }
+        mLayouts.put(xmlLayoutResId, next);
+        mLayoutWidths.put(xmlLayoutResId, width);
+        return next;
+    }
+
+    /**
+     * 只使用后台已经读取到内存中的快照，没有时在主线程解析 xml，主线程不读取快照文件
+     */
+    private KeyboardLayout createLayout(final Context appContext, final int xmlLayoutResId, int width) {
+        KeyboardSnapshot snapshot = mSnapshots.get(xmlLayoutResId);
+        if (snapshot != null) {
+            mSnapshots.remove(xmlLayoutResId);
+            if (mSnapshotWidths.get(xmlLayoutResId) != width) {
+                snapshot = null;
+            }
+        }
+        final Keyboard keyboard;
+        if (snapshot != null) {
+            keyboard = snapshot.toKeyboard(appContext);
+        } else {
+            keyboard = new Keyboard(appContext, xmlLayoutResId);
+            // 下次冷启动时使用快照
+            KeyboardLayoutCompiler.executor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    KeyboardLayoutCompiler.save(appContext, keyboard, xmlLayoutResId);
+                }
+            });
+        }
+        return new KeyboardLayout(keyboard);
+    }
+
+    /**
+     * 弹出键盘的 Activity 因为配置变化重建时调用，重建后第一次挂载时使用同一个布局并且不重新打乱
+     *
+     * @param xmlLayoutResId 当前显示的布局
+     */
+    void retainSession(int xmlLayoutResId) {
+        mRetainedLayoutResId = xmlLayoutResId;
+        mRetainedUntil = SystemClock.uptimeMillis() + RETAIN_TIMEOUT;
+    }
+
+    /**
+     * 取出保留的键盘会话，只能取出一次
+     *
+     * @return 保留的布局，没有或者已经过期时返回 0
+     */
+    int consumeRetainedSession() {
+        int xmlLayoutResId = SystemClock.uptimeMillis() < mRetainedUntil ? mRetainedLayoutResId : 0;
+        mRetainedLayoutResId = 0;
+        mRetainedUntil = 0;
+        return xmlLayoutResId;
+    }
+
+    /**
+     * 在后台线程把键盘 xml 编译为快照并保存到缓存目录，建议在 Application 启动时调用，
+     * 之后第一次使用这些布局时直接从快照恢复，不再在主线程解析 xml
+     *
+     * @param xmlLayoutResIds 键盘布局 xml
+     */
+    public void precompileLayouts(Context context, int... xmlLayoutResIds) {
+        compileSnapshots(context, xmlLayoutResIds, null);
+    }
+
+    /**
+     * 在后台线程读取或者编译快照，读取到的快照交给主线程保存在内存中，之后创建布局时使用
+     *
+     * @param onLoaded 全部完成后在主线程执行，可以为 null
+     */
+    private void compileSnapshots(Context context, final int[] xmlLayoutResIds, final Runnable onLoaded) {
+        final Context appContext = context.getApplicationContext();
+        final int width = appContext.getResources().getDisplayMetrics().widthPixels;
+        KeyboardLayoutCompiler.executor().execute(new Runnable() {
+            @Override
+            public void run() {
+                for (final int xmlLayoutResId : xmlLayoutResIds) {
+                    final KeyboardSnapshot snapshot = KeyboardLayoutCompiler.compile(appContext, xmlLayoutResId);
+                    if (snapshot == null) {
+                        continue;
+                    }
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (mLayouts.get(xmlLayoutResId) == null) {
+                                mSnapshots.put(xmlLayoutResId, snapshot);
+                                mSnapshotWidths.put(xmlLayoutResId, width);
+                            }
+                        }
+                    });
+                }
+                if (onLoaded != null) {
+                    mMainHandler.post(onLoaded);
+                }
+            }
+        });
+    }
+
+    /**
+     * 获取联想词典，第一次调用时映射 assets 中的词典文件，加载失败时返回 null 并且不再重试
+     */
+    TrieDictionary getDictionary(Context context) {
+        if (mDictionary == null && !mDictionaryFailed) {
+            try {
+                mDictionary = new TrieDictionary(mapAsset(context.getApplicationContext(), DICTIONARY_ASSET));
+            } catch (IOException | IllegalArgumentException e) {
+                mDictionaryFailed = true;
+            }
+        }
+        return mDictionary;
+    }
+
+    /**
+     * 在主线程空闲时提前加载联想词典
+     */
+    void prewarmDictionary(final Context context) {
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                getDictionary(context);
+                return false;
+            }
+        });
+    }
+
+    /**
+     * 内存映射 assets 中的文件，映射的内存不在 Java 堆中，关闭文件后仍然有效
+     * 文件在 apk 中被压缩时无法直接映射，先解压到缓存目录
+     */
+    private static ByteBuffer mapAsset(Context context, String name) throws IOException {
+        AssetManager assets = context.getAssets();
+        try {
+            AssetFileDescriptor fd = assets.openFd(name);
+            FileInputStream in = fd.createInputStream();
+            try {
+                return in.getChannel().map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getDeclaredLength());
+            } finally {
+                in.close();
+            }
+        } catch (FileNotFoundException compressed) {
+            // 文件名带上应用版本，升级或者覆盖安装后旧的解压结果自然失效
+            File dir = context.getCacheDir();
+            String prefix = name + '_';
+            File file = new File(dir, prefix + KeyboardLayoutCompiler.appVersion(context));
+            if (!file.exists()) {
+                InputStream in = assets.open(name);
+                try {
+                    copy(in, file);
+                } finally {
+                    in.close();
+                }
+                deleteStale(dir, file, prefix);
+            }
+            FileInputStream fileIn = new FileInputStream(file);
+            try {
+                return fileIn.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            } finally {
+                fileIn.close();
+            }
+        }
+    }
+
+    /**
+     * 先写入临时文件再重命名，进程在写入中途被杀时不会留下不完整的文件
+     */
+    private static void copy(InputStream in, File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                byte[] buffer = new byte[8192];
+                int count;
+                while ((count = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, count);
+                }
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("can not create " + file);
+            }
+        } finally {
+            temp.delete();
+        }
+    }
+
+    /**
+     * 删除旧版本解压的文件
+     */
+    private static void deleteStale(File dir, File current, String prefix) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.getName().startsWith(prefix) && !file.equals(current)) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * 在后台读取键盘快照（没有时在后台解析 xml 并生成快照），然后在主线程空闲时用快照创建布局、
+     * 创建 anchor 所在窗口的键盘弹窗，并在后台准备第一次的随机排列，减少第一次弹出的耗时
+     *
+     * @param anchor          窗口中的任意 View
+     * @param shuffleScope    {@link KeyShuffler#SCOPE_DIGITS} 等的组合，0 表示不打乱
+     * @param xmlLayoutResIds 需要提前解析的键盘布局
+     */
+    public void prewarm(final View anchor, final int shuffleScope, final int... xmlLayoutResIds) {
+        compileSnapshots(anchor.getContext(), xmlLayoutResIds, new Runnable() {
+            @Override
+            public void run() {
+                Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+                    @Override
+                    public boolean queueIdle() {
+                        for (int xmlLayoutResId : xmlLayoutResIds) {
+                            KeyboardLayout layout = getLayout(anchor.getContext(), xmlLayoutResId);
+                            if (shuffleScope != 0) {
+                                layout.getShuffler(shuffleScope).prepare();
+                            }
+                        }
+                        if (anchor.getWindowToken() != null) {
+                            obtainWindow(anchor);
+                        }
+                        return false;
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 获取 anchor 所在窗口的键盘弹窗，弹窗保存在根视图上，随窗口一起释放
+     */
+    private KeyboardWindow obtainWindow(View anchor) {
+        View root = anchor.getRootView();
+        KeyboardWindow window = (KeyboardWindow) root.getTag(R.id.keyboard_window);
+        if (window == null) {
+            window = new KeyboardWindow(anchor.getContext());
+            root.setTag(R.id.keyboard_window, window);
+        }
+        return window;
+    }
+
+    /**
+     * 将输入框挂载到键盘弹窗上
+     */
+    KeyboardWindow attach(CustomKeyboardManager binding, View anchor, KeyboardLayout layout) {
+        KeyboardWindow window = obtainWindow(anchor);
+        if (mAttached != null && mAttached != binding) {
+            // 焦点直接移到另一个管理器的输入框，之前的管理器延迟执行的 detach 不会再关闭弹窗，由这里结束它的会话
+            mAttached.onReplaced();
+        }
+        if (mAttachedWindow != null && mAttachedWindow != window) {
+            mAttachedWindow.dismiss();
+        }
+        SecureKeyboardView keyboardView = window.getKeyboardView();
+        if (keyboardView.getKeyboardLayout() != layout) {
+            keyboardView.setKeyboardLayout(layout);
+        }
+        keyboardView.setOnKeyboardActionListener(binding);
+        mAttached = binding;
+        mAttachedWindow = window;
+        return window;
+    }
+
+    boolean isAttached(CustomKeyboardManager binding) {
+        return mAttached == binding;
+    }
+
+    /**
+     * 输入框失去焦点时解除挂载，只有当前挂载的输入框才会关闭弹窗
+     */
+    void detach(CustomKeyboardManager binding) {
+        if (mAttached != binding) {
+            return;
+        }
+        mAttachedWindow.getKeyboardView().setOnKeyboardActionListener(null);
+        mAttachedWindow.dismiss();
+        mAttached = null;
+        mAttachedWindow = null;
+    }
+}
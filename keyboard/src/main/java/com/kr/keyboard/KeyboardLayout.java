@@ -0,0 +1,246 @@
+package com.kr.keyboard;
+
+import android.inputmethodservice.Keyboard;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import java.util.List;
+
+/**
+ * 解析后的键盘布局，在输入框之间共享
+ * 1.加载 xml 时为每个按键预先生成各个层（小写、大写、大写锁定、符号）的 code 和 label，
+ * 切换大小写只是修改当前层，不需要逐个转换按键的字符串
+ * 2.按键当前显示的内容通过一个 int 索引表映射到原始内容，
+ * 打乱按键时只需要修改索引表，不再在 {@link Keyboard#getKeys()} 上逐个交换
+ * 层和索引表保存在不依赖 Android 的 {@link KeyLayers} 中
+ * 3.触摸点通过 {@link KeyHitGrid} 查找按键，触摸扩展范围跟随按键内容，打乱后在原地更新
+ */
+final class KeyboardLayout {
+
+    static final int LAYER_NORMAL = KeyLayers.LAYER_NORMAL;
+    static final int LAYER_SHIFT = KeyLayers.LAYER_SHIFT;
+    static final int LAYER_CAPS_LOCK = KeyLayers.LAYER_CAPS_LOCK;
+
+    private final Keyboard mKeyboard;
+    private final Keyboard.Key[] mKeys;
+    private final KeyLayers mLayers;
+
+    // 每个按键占 4 个 int：left, top, right, bottom（已包含 padding 偏移），只在 padding 变化时重新计算
+    private final int[] mKeyBounds;
+    private int mBoundsLeft = Integer.MIN_VALUE;
+    private int mBoundsTop = Integer.MIN_VALUE;
+    private final int mContentWidth;
+    private final int mContentHeight;
+
+    private final SparseArray<KeyShuffler> mShufflers = new SparseArray<>();
+
+    private KeyHitGrid mHitGrid;
+    // 小写层 code -> 触摸扩展范围
+    private final SparseIntArray mSlops = new SparseIntArray();
+
+    KeyboardLayout(Keyboard keyboard) {
+        mKeyboard = keyboard;
+        List<Keyboard.Key> keys = keyboard.getKeys();
+        int count = keys.size();
+        mKeys = keys.toArray(new Keyboard.Key[count]);
+        mKeyBounds = new int[count * 4];
+
+        int[] codes = new int[count];
+        CharSequence[] labels = new CharSequence[count];
+        for (int i = 0; i < count; i++) {
+            Keyboard.Key key = mKeys[i];
+            codes[i] = key.codes[0];
+            labels[i] = key.label;
+        }
+        mLayers = new KeyLayers(codes, labels);
+
+        int maxRight = 0;
+        int maxBottom = 0;
+        for (Keyboard.Key key : mKeys) {
+            maxRight = Math.max(maxRight, key.x + key.width);
+            maxBottom = Math.max(maxBottom, key.y + key.height);
+        }
+        mContentWidth = Math.max(keyboard.getMinWidth(), maxRight);
+        mContentHeight = Math.max(keyboard.getHeight(), maxBottom);
+    }
+
+    Keyboard getKeyboard() {
+        return mKeyboard;
+    }
+
+    Keyboard.Key[] getKeys() {
+        return mKeys;
+    }
+
+    int getKeyCount() {
+        return mKeys.length;
+    }
+
+    int getContentWidth() {
+        return mContentWidth;
+    }
+
+    int getContentHeight() {
+        return mContentHeight;
+    }
+
+    /**
+     * 获取按键的绘制区域，padding 不变时直接返回上一次的结果
+     *
+     * @return 每个按键占 4 个 int：left, top, right, bottom
+     */
+    int[] getKeyBounds(int paddingLeft, int paddingTop) {
+        if (paddingLeft != mBoundsLeft || paddingTop != mBoundsTop) {
+            for (int i = 0; i < mKeys.length; i++) {
+                Keyboard.Key key = mKeys[i];
+                int offset = i * 4;
+                mKeyBounds[offset] = paddingLeft + key.x;
+                mKeyBounds[offset + 1] = paddingTop + key.y;
+                mKeyBounds[offset + 2] = paddingLeft + key.x + key.width;
+                mKeyBounds[offset + 3] = paddingTop + key.y + key.height;
+            }
+            mBoundsLeft = paddingLeft;
+            mBoundsTop = paddingTop;
+        }
+        return mKeyBounds;
+    }
+
+    /**
+     * 查找触摸点所在的按键，第一次调用时建立索引
+     *
+     * @param x 不包含 padding 的坐标
+     * @param y 不包含 padding 的坐标
+     * @return 按键下标，没有时返回 {@link KeyHitGrid#NOT_A_KEY}
+     */
+    int findKey(int x, int y) {
+        if (mHitGrid == null) {
+            int[] bounds = new int[mKeys.length * 4];
+            for (int i = 0; i < mKeys.length; i++) {
+                Keyboard.Key key = mKeys[i];
+                int offset = i * 4;
+                bounds[offset] = key.x;
+                bounds[offset + 1] = key.y;
+                bounds[offset + 2] = key.x + key.width;
+                bounds[offset + 3] = key.y + key.height;
+            }
+            mHitGrid = new KeyHitGrid(bounds, mContentWidth, mContentHeight);
+            for (int i = 0; i < mKeys.length; i++) {
+                updateSlop(i);
+            }
+        }
+        return mHitGrid.findKey(x, y);
+    }
+
+    /**
+     * 设置按键的触摸扩展范围，触摸点落在按键之间的空隙时选择扩展范围内最近的按键，打乱后跟随按键内容
+     *
+     * @param code 小写层的 code
+     * @param slop 像素，0 表示只响应按键本身的区域
+     */
+    void setKeySlop(int code, int slop) {
+        mSlops.put(code, slop);
+        if (mHitGrid != null) {
+            for (int i = 0; i < mKeys.length; i++) {
+                updateSlop(i);
+            }
+        }
+    }
+
+    /**
+     * 沿用另一个屏幕宽度下同一个布局的随机排列、层和触摸范围
+     */
+    void copyStateFrom(KeyboardLayout other) {
+        if (other.getKeyCount() != getKeyCount()) {
+            return;
+        }
+        for (int i = 0; i < other.mSlops.size(); i++) {
+            mSlops.put(other.mSlops.keyAt(i), other.mSlops.valueAt(i));
+        }
+        for (int i = 0; i < mKeys.length; i++) {
+            mLayers.setContent(i, other.getContent(i));
+            updateSlop(i);
+        }
+        mLayers.setLayer(other.getLayer());
+    }
+
+    /**
+     * 恢复原始排列和小写层，布局对象在所有输入框之间共享，弹出时不能沿用上一个输入框的状态
+     */
+    void resetState() {
+        for (int i = 0; i < mKeys.length; i++) {
+            if (mLayers.getContent(i) != i) {
+                setContent(i, i);
+            }
+        }
+        mLayers.setLayer(KeyLayers.LAYER_NORMAL);
+    }
+
+    private void updateSlop(int keyIndex) {
+        if (mHitGrid != null) {
+            mHitGrid.setSlop(keyIndex, mSlops.get(mLayers.getBaseCode(mLayers.getContent(keyIndex)), 0));
+        }
+    }
+
+    /**
+     * @return 小写层中原始内容的 code
+     */
+    int getBaseCode(int contentIndex) {
+        return mLayers.getBaseCode(contentIndex);
+    }
+
+    /**
+     * @return 按键在当前层显示的 code
+     */
+    int getCode(int keyIndex) {
+        return mLayers.getCode(keyIndex);
+    }
+
+    /**
+     * @return 按键在当前层显示的 label，图标按键返回 null
+     */
+    CharSequence getLabel(int keyIndex) {
+        return mLayers.getLabel(keyIndex);
+    }
+
+    int getLayer() {
+        return mLayers.getLayer();
+    }
+
+    /**
+     * 切换当前层，O(1)，调用后需要刷新键盘
+     */
+    void setLayer(int layer) {
+        mLayers.setLayer(layer);
+    }
+
+    /**
+     * 修改按键显示的内容
+     *
+     * @param keyIndex     按键下标
+     * @param contentIndex 原始内容下标
+     */
+    void setContent(int keyIndex, int contentIndex) {
+        mLayers.setContent(keyIndex, contentIndex);
+        if (mSlops.size() > 0) {
+            updateSlop(keyIndex);
+        }
+    }
+
+    int getContent(int keyIndex) {
+        return mLayers.getContent(keyIndex);
+    }
+
+    /**
+     * 获取指定范围的洗牌器，同一个布局和范围只创建一次
+     *
+     * @param scope {@link KeyShuffler#SCOPE_DIGITS} 等的组合
+     */
+    KeyShuffler getShuffler(int scope) {
+        KeyShuffler shuffler = mShufflers.get(scope);
+        if (shuffler == null) {
+            shuffler = new KeyShuffler(this, scope);
+            mShufflers.put(scope, shuffler);
+        }
+        return shuffler;
+    }
+}
@@ -0,0 +1,191 @@
+package com.kr.keyboard;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.inputmethodservice.Keyboard;
+import android.os.Build;
+import android.util.DisplayMetrics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 键盘布局编译器，在后台线程把键盘 xml 解析为 {@link KeyboardSnapshot} 并保存到缓存目录
+ * 1.快照按资源 id、屏幕尺寸和密度、语言、uiMode、字体缩放、应用版本区分，任何一项变化都会重新解析
+ * 2.之后冷启动时从快照恢复键盘，不再在主线程解析 xml
+ * 3.快照写入临时文件后再重命名，读取失败时删除并回退到解析 xml
+ */
+final class KeyboardLayoutCompiler {
+
+    private static final String CACHE_DIR = "keyboard_layouts";
+
+    private static ExecutorService sExecutor;
+    private static volatile String sAppVersion;
+
+    private KeyboardLayoutCompiler() {
+    }
+
+    /**
+     * 串行执行的后台线程，只在需要时创建
+     */
+    static synchronized ExecutorService executor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "keyboard-layout-compiler");
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+    /**
+     * 读取缓存的快照，没有或者已经失效时返回 null，可以在任意线程调用
+     * 文件损坏时删除文件，之后重新解析 xml 生成
+     */
+    static KeyboardSnapshot load(Context context, int xmlLayoutResId) {
+        File file = snapshotFile(context, xmlLayoutResId);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                return KeyboardSnapshot.read(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * 读取缓存的快照，没有时解析 xml 并写入缓存，应该在后台线程调用
+     *
+     * @return xml 无法生成快照时返回 null
+     */
+    static KeyboardSnapshot compile(Context context, int xmlLayoutResId) {
+        KeyboardSnapshot snapshot = load(context, xmlLayoutResId);
+        if (snapshot == null) {
+            snapshot = save(context, new Keyboard(context, xmlLayoutResId), xmlLayoutResId);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 为已经解析的键盘生成快照并写入缓存
+     *
+     * @return xml 无法生成快照或者写入失败时返回 null
+     */
+    static KeyboardSnapshot save(Context context, Keyboard keyboard, int xmlLayoutResId) {
+        File file = snapshotFile(context, xmlLayoutResId);
+        File dir = file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            return null;
+        }
+        File temp = new File(dir, file.getName() + ".tmp");
+        try {
+            KeyboardSnapshot snapshot = KeyboardSnapshot.from(context, keyboard, xmlLayoutResId);
+            if (snapshot == null) {
+                return null;
+            }
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            try {
+                snapshot.write(out);
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                return null;
+            }
+            deleteStale(dir, file, xmlLayoutResId);
+            return snapshot;
+        } catch (Exception e) {
+            temp.delete();
+            return null;
+        }
+    }
+
+    /**
+     * 删除同一个布局在旧配置、旧版本下的快照
+     */
+    private static void deleteStale(File dir, File current, int xmlLayoutResId) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        String prefix = Integer.toHexString(xmlLayoutResId) + '_';
+        for (File file : files) {
+            if (file.getName().startsWith(prefix) && !file.equals(current)) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * 快照文件名包含资源 id 和当前配置，应用升级、屏幕变化或者切换语言、深色模式、字体大小后自然失效
+     */
+    private static File snapshotFile(Context context, int xmlLayoutResId) {
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        Configuration configuration = context.getResources().getConfiguration();
+        String name = Integer.toHexString(xmlLayoutResId)
+                + '_' + metrics.widthPixels + 'x' + metrics.heightPixels
+                + '_' + metrics.densityDpi
+                + '_' + configuration.orientation
+                + '_' + Integer.toHexString(resourceConfigHash(configuration))
+                + '_' + appVersion(context)
+                + ".bin";
+        return new File(new File(context.getCacheDir(), CACHE_DIR), name);
+    }
+
+    /**
+     * 影响 label 等资源取值的配置：label 保存的是解析后的字符串，语言、uiMode 和字体缩放变化时需要重新解析
+     */
+    @SuppressWarnings("deprecation")
+    private static int resourceConfigHash(Configuration configuration) {
+        String locales = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                ? configuration.getLocales().toLanguageTags()
+                : String.valueOf(configuration.locale);
+        int hash = locales.hashCode();
+        hash = 31 * hash + configuration.uiMode;
+        hash = 31 * hash + Float.floatToIntBits(configuration.fontScale);
+        return hash;
+    }
+
+    /**
+     * 版本号加安装时间，开发时覆盖安装相同版本号的 apk 也会失效
+     */
+    @SuppressWarnings("deprecation")
+    static String appVersion(Context context) {
+        String version = sAppVersion;
+        if (version == null) {
+            try {
+                PackageInfo info = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+                long versionCode = Build.VERSION.SDK_INT >= Build.VERSION_CODES.P ? info.getLongVersionCode() : info.versionCode;
+                version = versionCode + "-" + info.lastUpdateTime;
+            } catch (PackageManager.NameNotFoundException e) {
+                version = "0";
+            }
+            sAppVersion = version;
+        }
+        return version;
+    }
+}
@@ -0,0 +1,233 @@
+package com.kr.keyboard;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.WindowManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 键盘性能统计，通过 {@link CustomKeyboardManager#setMetrics} 启用，可以在多个输入框之间共享
+ * 1.只记录耗时和次数，不记录任何按键内容
+ * 2.耗时按 2 的幂分桶累计在原子数组中，记录时不加锁、不分配对象，可以在任意线程读取
+ * 3.键盘显示期间通过 Choreographer 统计掉帧，统计期间每个 vsync 都会回调，只应在需要采集数据时启用
+ */
+public final class KeyboardMetrics {
+
+    /**
+     * 触摸事件产生到按键分发到 {@link CustomKeyboardManager}，包括触摸处理和主线程排队
+     */
+    public static final int METRIC_INPUT_TO_KEY = 0;
+    /**
+     * 触摸事件产生到文字修改完成，也就是用户感受到的延迟
+     */
+    public static final int METRIC_PRESS_TO_COMMIT = 1;
+    /**
+     * 修改 Editable 本身的耗时，包括下游的 TextWatcher 和 span 回调
+     */
+    public static final int METRIC_EDITABLE_COMMIT = 2;
+    /**
+     * 调用显示到键盘第一次绘制
+     */
+    public static final int METRIC_SHOW = 3;
+    /**
+     * 关闭弹窗的耗时
+     */
+    public static final int METRIC_DISMISS = 4;
+    /**
+     * 弹出时打乱所有布局的耗时
+     */
+    public static final int METRIC_SHUFFLE = 5;
+    public static final int METRIC_COUNT = 6;
+
+    /**
+     * 第 i 个桶统计 [2^(i-1), 2^i) 微秒，第 0 个桶统计 0 微秒，最后一个桶包括所有更大的值
+     */
+    public static final int BUCKET_COUNT = 24;
+
+    private static final long NANOS_PER_MICRO = 1000;
+
+    public interface Listener {
+        /**
+         * 键盘关闭后在主线程回调，metrics 是累计值，需要单次的数据时可以读取后调用 {@link #reset()}
+         */
+        void onSessionEnd(KeyboardMetrics metrics);
+    }
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(METRIC_COUNT * BUCKET_COUNT);
+    private final AtomicLongArray mCounts = new AtomicLongArray(METRIC_COUNT);
+    private final AtomicLongArray mTotals = new AtomicLongArray(METRIC_COUNT);
+    private final AtomicLongArray mMaxima = new AtomicLongArray(METRIC_COUNT);
+    private final AtomicLong mSessions = new AtomicLong();
+    private final AtomicLong mFrames = new AtomicLong();
+    private final AtomicLong mDroppedFrames = new AtomicLong();
+
+    private Listener mListener;
+
+    // 以下只在主线程使用
+    private boolean mTracking;
+    private boolean mFramePosted;
+    private long mLastFrameNanos;
+    private long mFrameIntervalNanos;
+    private Object mFrameCallback;
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * @param metric {@link #METRIC_INPUT_TO_KEY} 等
+     */
+    public long getCount(int metric) {
+        return mCounts.get(metric);
+    }
+
+    public long getTotalMicros(int metric) {
+        return mTotals.get(metric);
+    }
+
+    public long getMaxMicros(int metric) {
+        return mMaxima.get(metric);
+    }
+
+    public long getBucketCount(int metric, int bucket) {
+        if (bucket < 0 || bucket >= BUCKET_COUNT) {
+            throw new IndexOutOfBoundsException("bucket: " + bucket);
+        }
+        return mBuckets.get(metric * BUCKET_COUNT + bucket);
+    }
+
+    /**
+     * @return 桶的上限（不包含），单位微秒，最后一个桶返回 {@link Long#MAX_VALUE}
+     */
+    public static long getBucketUpperBoundMicros(int bucket) {
+        return bucket >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    /**
+     * 按桶估算分位数，返回所在桶的上限，没有数据时返回 0
+     *
+     * @param percentile 0-100
+     */
+    public long getPercentileMicros(int metric, float percentile) {
+        long count = mCounts.get(metric);
+        if (count == 0) {
+            return 0;
+        }
+        // 至少要覆盖一个样本，否则 0 分位会落在没有数据的第 0 个桶
+        long target = Math.max(1, (long) Math.ceil(count * percentile / 100f));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += mBuckets.get(metric * BUCKET_COUNT + bucket);
+            if (seen >= target) {
+                return Math.min(getBucketUpperBoundMicros(bucket), mMaxima.get(metric));
+            }
+        }
+        return mMaxima.get(metric);
+    }
+
+    /**
+     * @return 键盘显示的次数
+     */
+    public long getSessionCount() {
+        return mSessions.get();
+    }
+
+    /**
+     * @return 键盘显示期间的帧数
+     */
+    public long getFrameCount() {
+        return mFrames.get();
+    }
+
+    /**
+     * @return 键盘显示期间错过的 vsync 数量，4.1 以下始终为 0
+     */
+    public long getDroppedFrameCount() {
+        return mDroppedFrames.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < mBuckets.length(); i++) {
+            mBuckets.set(i, 0);
+        }
+        for (int i = 0; i < METRIC_COUNT; i++) {
+            mCounts.set(i, 0);
+            mTotals.set(i, 0);
+            mMaxima.set(i, 0);
+        }
+        mSessions.set(0);
+        mFrames.set(0);
+        mDroppedFrames.set(0);
+    }
+
+    void record(int metric, long nanos) {
+        long micros = Math.max(0, nanos / NANOS_PER_MICRO);
+        int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+        mBuckets.incrementAndGet(metric * BUCKET_COUNT + bucket);
+        mCounts.incrementAndGet(metric);
+        mTotals.addAndGet(metric, micros);
+        long max;
+        do {
+            max = mMaxima.get(metric);
+        } while (micros > max && !mMaxima.compareAndSet(metric, max, micros));
+    }
+
+    /**
+     * 键盘显示后调用，开始统计掉帧
+     */
+    void onSessionStart(Context context) {
+        mSessions.incrementAndGet();
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return;
+        }
+        WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        float refreshRate = windowManager == null ? 0 : windowManager.getDefaultDisplay().getRefreshRate();
+        mFrameIntervalNanos = (long) (1e9 / (refreshRate > 0 ? refreshRate : 60f));
+        mTracking = true;
+        mLastFrameNanos = 0;
+        if (!mFramePosted) {
+            postFrameCallback();
+        }
+    }
+
+    /**
+     * 键盘关闭后调用
+     */
+    void onSessionEnd() {
+        mTracking = false;
+        if (mListener != null) {
+            mListener.onSessionEnd(this);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        if (mFrameCallback == null) {
+            mFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    if (!mTracking) {
+                        mFramePosted = false;
+                        return;
+                    }
+                    if (mLastFrameNanos != 0) {
+                        mFrames.incrementAndGet();
+                        // 两帧之间超过 1.5 个周期才算掉帧，避免 vsync 抖动误报
+                        long elapsed = frameTimeNanos - mLastFrameNanos;
+                        if (elapsed > mFrameIntervalNanos * 3 / 2) {
+                            mDroppedFrames.addAndGet(Math.round((double) elapsed / mFrameIntervalNanos) - 1);
+                        }
+                    }
+                    mLastFrameNanos = frameTimeNanos;
+                    Choreographer.getInstance().postFrameCallback(this);
+                }
+            };
+        }
+        mFramePosted = true;
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+    }
+}
@@ -0,0 +1,235 @@
+package com.kr.keyboard;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+import android.graphics.drawable.Drawable;
+import android.inputmethodservice.Keyboard;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 解析后的键盘布局快照，所有尺寸已经按当前屏幕换算为像素
+ * 1.从快照恢复键盘时不再解析 xml 和换算 %p 尺寸，只创建按键对象并加载图标
+ * 2.图标保存资源 id，因为 {@link Keyboard.Key#icon} 是 Drawable，恢复时重新加载
+ */
+final class KeyboardSnapshot {
+
+    static final int MAGIC = 0x4B524B42;
+    static final int VERSION = 1;
+    // 按键数量的上限，文件损坏时不按读到的数量分配数组
+    static final int MAX_KEY_COUNT = 512;
+    private static final String ANDROID_NAMESPACE = "http://schemas.android.com/apk/res/android";
+    private static final String TAG_KEY = "Key";
+
+    private static final int FLAG_REPEATABLE = 1;
+
+    private final int mMinWidth;
+    private final int mHeight;
+    // 每个按键 x, y, width, height, gap, edgeFlags
+    private final int[] mGeometry;
+    private final int[][] mCodes;
+    private final String[] mLabels;
+    private final String[] mTexts;
+    private final String[] mPopupCharacters;
+    private final int[] mIconResIds;
+    private final int[] mFlags;
+
+    private KeyboardSnapshot(int minWidth, int height, int keyCount) {
+        mMinWidth = minWidth;
+        mHeight = height;
+        mGeometry = new int[keyCount * 6];
+        mCodes = new int[keyCount][];
+        mLabels = new String[keyCount];
+        mTexts = new String[keyCount];
+        mPopupCharacters = new String[keyCount];
+        mIconResIds = new int[keyCount];
+        mFlags = new int[keyCount];
+    }
+
+    /**
+     * 从已解析的键盘生成快照，图标的资源 id 需要再读一遍 xml
+     *
+     * @return xml 中的按键与解析结果对应不上时返回 null，这时只能继续解析 xml
+     */
+    static KeyboardSnapshot from(Context context, Keyboard keyboard, int xmlLayoutResId)
+            throws IOException, XmlPullParserException {
+        List<Keyboard.Key> keys = keyboard.getKeys();
+        int[] iconResIds = readIconResIds(context.getResources(), xmlLayoutResId);
+        if (iconResIds.length != keys.size()) {
+            return null;
+        }
+        KeyboardSnapshot snapshot = new KeyboardSnapshot(keyboard.getMinWidth(), keyboard.getHeight(), keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            Keyboard.Key key = keys.get(i);
+            int offset = i * 6;
+            snapshot.mGeometry[offset] = key.x;
+            snapshot.mGeometry[offset + 1] = key.y;
+            snapshot.mGeometry[offset + 2] = key.width;
+            snapshot.mGeometry[offset + 3] = key.height;
+            snapshot.mGeometry[offset + 4] = key.gap;
+            snapshot.mGeometry[offset + 5] = key.edgeFlags;
+            snapshot.mCodes[i] = key.codes;
+            snapshot.mLabels[i] = key.label == null ? null : key.label.toString();
+            snapshot.mTexts[i] = key.text == null ? null : key.text.toString();
+            snapshot.mPopupCharacters[i] = key.popupCharacters == null ? null : key.popupCharacters.toString();
+            snapshot.mIconResIds[i] = key.icon == null ? 0 : iconResIds[i];
+            snapshot.mFlags[i] = key.repeatable ? FLAG_REPEATABLE : 0;
+        }
+        return snapshot;
+    }
+
+    private static int[] readIconResIds(Resources resources, int xmlLayoutResId)
+            throws IOException, XmlPullParserException {
+        List<Integer> iconResIds = new ArrayList<>();
+        XmlResourceParser parser = resources.getXml(xmlLayoutResId);
+        try {
+            int event;
+            while ((event = parser.next()) != XmlPullParser.END_DOCUMENT) {
+                if (event == XmlPullParser.START_TAG && TAG_KEY.equals(parser.getName())) {
+                    iconResIds.add(parser.getAttributeResourceValue(ANDROID_NAMESPACE, "keyIcon", 0));
+                }
+            }
+        } finally {
+            parser.close();
+        }
+        int[] result = new int[iconResIds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = iconResIds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * 恢复键盘，只解析一个空的 xml 用于初始化 {@link Keyboard} 本身
+     */
+    Keyboard toKeyboard(Context context) {
+        SnapshotKeyboard keyboard = new SnapshotKeyboard(context, mMinWidth, mHeight);
+        Keyboard.Row row = new Keyboard.Row(keyboard);
+        Resources resources = context.getResources();
+        for (int i = 0; i < mCodes.length; i++) {
+            Keyboard.Key key = new Keyboard.Key(row);
+            int offset = i * 6;
+            key.x = mGeometry[offset];
+            key.y = mGeometry[offset + 1];
+            key.width = mGeometry[offset + 2];
+            key.height = mGeometry[offset + 3];
+            key.gap = mGeometry[offset + 4];
+            key.edgeFlags = mGeometry[offset + 5];
+            key.codes = mCodes[i];
+            key.label = mLabels[i];
+            key.text = mTexts[i];
+            key.popupCharacters = mPopupCharacters[i];
+            key.repeatable = (mFlags[i] & FLAG_REPEATABLE) != 0;
+            if (mIconResIds[i] != 0) {
+                @SuppressWarnings("deprecation")
+                Drawable icon = resources.getDrawable(mIconResIds[i]);
+                icon.setBounds(0, 0, icon.getIntrinsicWidth(), icon.getIntrinsicHeight());
+                key.icon = icon;
+            }
+            keyboard.mKeys.add(key);
+        }
+        return keyboard;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(mCodes.length);
+        out.writeInt(mMinWidth);
+        out.writeInt(mHeight);
+        for (int value : mGeometry) {
+            out.writeInt(value);
+        }
+        for (int i = 0; i < mCodes.length; i++) {
+            out.writeShort(mCodes[i].length);
+            for (int code : mCodes[i]) {
+                out.writeInt(code);
+            }
+            writeString(out, mLabels[i]);
+            writeString(out, mTexts[i]);
+            writeString(out, mPopupCharacters[i]);
+            out.writeInt(mIconResIds[i]);
+            out.writeInt(mFlags[i]);
+        }
+    }
+
+    /**
+     * @throws IOException 文件损坏、被截断或者版本不同
+     */
+    static KeyboardSnapshot read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("not a keyboard snapshot");
+        }
+        int keyCount = in.readInt();
+        if (keyCount < 0 || keyCount > MAX_KEY_COUNT) {
+            throw new IOException("key count: " + keyCount);
+        }
+        KeyboardSnapshot snapshot = new KeyboardSnapshot(in.readInt(), in.readInt(), keyCount);
+        for (int i = 0; i < snapshot.mGeometry.length; i++) {
+            snapshot.mGeometry[i] = in.readInt();
+        }
+        for (int i = 0; i < keyCount; i++) {
+            int[] codes = new int[in.readUnsignedShort()];
+            for (int j = 0; j < codes.length; j++) {
+                codes[j] = in.readInt();
+            }
+            snapshot.mCodes[i] = codes;
+            snapshot.mLabels[i] = readString(in);
+            snapshot.mTexts[i] = readString(in);
+            snapshot.mPopupCharacters[i] = readString(in);
+            snapshot.mIconResIds[i] = in.readInt();
+            snapshot.mFlags[i] = in.readInt();
+        }
+        return snapshot;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * 按键来自快照的键盘，xml 只用于初始化父类
+     */
+    private static final class SnapshotKeyboard extends Keyboard {
+
+        final List<Key> mKeys = new ArrayList<>();
+        private final int mMinWidth;
+        private final int mHeight;
+
+        SnapshotKeyboard(Context context, int minWidth, int height) {
+            super(context, R.xml.keyboard_empty);
+            mMinWidth = minWidth;
+            mHeight = height;
+        }
+
+        @Override
+        public List<Key> getKeys() {
+            return mKeys;
+        }
+
+        @Override
+        public int getMinWidth() {
+            return mMinWidth;
+        }
+
+        @Override
+        public int getHeight() {
+            return mHeight;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.kr.keyboard;
+
+import android.app.Dialog;
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.view.Gravity;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+import android.view.WindowManager;
+import android.widget.TextView;
+
+/**
+ * 键盘弹窗，每个窗口只创建一次，由 {@link KeyboardHost} 在输入框之间复用
+ */
+final class KeyboardWindow {
+
+    private final Dialog mDialog;
+    private final SecureKeyboardView mKeyboardView;
+    private final View mViewHide;
+    private final View mSuggestionStrip;
+    private final TextView[] mSuggestionViews;
+
+    KeyboardWindow(Context context) {
+        View view = LayoutInflater.from(context).inflate(R.layout.keyboard_view, null);
+        mDialog = new Dialog(context);
+        initWindow();
+        mDialog.setContentView(view);
+
+        mKeyboardView = view.findViewById(R.id.keyboardview);
+        mViewHide = view.findViewById(R.id.v_hide);
+        mSuggestionStrip = view.findViewById(R.id.ll_suggestions);
+        mSuggestionViews = new TextView[]{
+                (TextView) view.findViewById(R.id.tv_suggestion_0),
+                (TextView) view.findViewById(R.id.tv_suggestion_1),
+                (TextView) view.findViewById(R.id.tv_suggestion_2)
+        };
+        mViewHide.setSelected(false);
+        mViewHide.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                mViewHide.setSelected(!mViewHide.isSelected());
+            }
+        });
+    }
+
+    private void initWindow() {
+        Window mWindow = mDialog.getWindow();
+        if (mWindow != null) {
+            mWindow.setWindowAnimations(R.style.PopupAnimation);
+            mWindow.setSoftInputMode(WindowManager.LayoutParams.SOFT_INPUT_STATE_ALWAYS_HIDDEN);
+            mWindow.setGravity(Gravity.BOTTOM | Gravity.FILL_HORIZONTAL);
+            mWindow.setLayout(ViewGroup.LayoutParams.MATCH_PARENT,
+                    ViewGroup.LayoutParams.WRAP_CONTENT);
+            mWindow.setBackgroundDrawable(new ColorDrawable(Color.TRANSPARENT));
+
+            mWindow.setFlags(WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS,
+                    WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS);
+            mWindow.addFlags(WindowManager.LayoutParams.FLAG_SECURE);
+            mWindow.addFlags(WindowManager.LayoutParams.FLAG_NOT_TOUCH_MODAL);
+            mWindow.setDimAmount(0);
+        }
+    }
+
+    SecureKeyboardView getKeyboardView() {
+        return mKeyboardView;
+    }
+
+    /**
+     * 是否允许预览按键
+     */
+    boolean isPreviewAllowed() {
+        return mViewHide.isSelected();
+    }
+
+    /**
+     * @return 联想栏最多显示的单词数
+     */
+    int getSuggestionCapacity() {
+        return mSuggestionViews.length;
+    }
+
+    /**
+     * 显示或隐藏联想栏，隐藏时清空内容，避免切换到其他输入框后仍然显示之前的联想词
+     *
+     * @param listener 点击联想词的回调，被点击的 view 是 TextView
+     */
+    void setSuggestionsVisible(boolean visible, View.OnClickListener listener) {
+        for (TextView suggestionView : mSuggestionViews) {
+            suggestionView.setOnClickListener(visible ? listener : null);
+        }
+        if (!visible) {
+            setSuggestions(null, 0);
+        }
+        int visibility = visible ? View.VISIBLE : View.GONE;
+        if (mSuggestionStrip.getVisibility() != visibility) {
+            mSuggestionStrip.setVisibility(visibility);
+        }
+    }
+
+    void setSuggestions(String[] words, int count) {
+        for (int i = 0; i < mSuggestionViews.length; i++) {
+            TextView suggestionView = mSuggestionViews[i];
+            if (i < count) {
+                suggestionView.setText(words[i]);
+                suggestionView.setVisibility(View.VISIBLE);
+            } else if (suggestionView.getVisibility() != View.INVISIBLE) {
+                suggestionView.setText(null);
+                suggestionView.setVisibility(View.INVISIBLE);
+            }
+        }
+    }
+
+    boolean isShowing() {
+        return mDialog.isShowing();
+    }
+
+    void show() {
+        if (!mDialog.isShowing()) {
+            mDialog.show();
+        }
+    }
+
+    void dismiss() {
+        if (mDialog.isShowing()) {
+            mDialog.dismiss();
+        }
+    }
+}
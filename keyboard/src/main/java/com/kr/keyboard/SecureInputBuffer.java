@@ -0,0 +1,128 @@
+package com.kr.keyboard;
+
+import android.widget.EditText;
+
+import java.util.Arrays;
+
+/**
+ * 安全输入模式下保存输入内容的定长缓冲区，通过 {@link CustomKeyboardManager#setSecureInput} 启用
+ * 1.输入内容只写入这里的 char 数组，输入框中只显示 {@link #masked()} 的掩码，不会产生包含明文的 String 或 Editable
+ * 2.容量在创建时固定，之后不再扩容，不会在堆中留下旧数组的副本
+ * 3.键盘关闭时通过 {@link Listener} 交给调用方，回调返回后立即清零
+ */
+public final class SecureInputBuffer {
+
+    public interface Listener {
+        /**
+         * 键盘关闭时在主线程回调，buffer 只在回调期间有效，需要保留时复制到调用方自己管理的 char 数组
+         *
+         * @param editText 显示掩码的输入框
+         */
+        void onSecureInput(EditText editText, SecureInputBuffer buffer);
+    }
+
+    static final char MASK_CHAR = '\u2022';
+
+    private final char[] mChars;
+    private int mLength;
+    private final CharSequence mMasked = new Masked();
+
+    SecureInputBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        mChars = new char[capacity];
+    }
+
+    public int capacity() {
+        return mChars.length;
+    }
+
+    public int length() {
+        return mLength;
+    }
+
+    public char charAt(int index) {
+        if (index < 0 || index >= mLength) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + mLength);
+        }
+        return mChars[index];
+    }
+
+    /**
+     * 复制全部内容到 dst
+     *
+     * @param dstBegin dst 中的起始位置
+     */
+    public void getChars(char[] dst, int dstBegin) {
+        System.arraycopy(mChars, 0, dst, dstBegin, mLength);
+    }
+
+    /**
+     * 和内容等长的掩码，只读取长度，不读取内容
+     */
+    CharSequence masked() {
+        return mMasked;
+    }
+
+    /**
+     * @return 已满时返回 false
+     */
+    boolean append(char c) {
+        if (mLength == mChars.length) {
+            return false;
+        }
+        mChars[mLength++] = c;
+        return true;
+    }
+
+    /**
+     * @return 为空时返回 false
+     */
+    boolean deleteLast() {
+        if (mLength == 0) {
+            return false;
+        }
+        mChars[--mLength] = 0;
+        return true;
+    }
+
+    /**
+     * 清零全部内容
+     */
+    void clear() {
+        Arrays.fill(mChars, (char) 0);
+        mLength = 0;
+    }
+
+    private final class Masked implements CharSequence {
+
+        @Override
+        public int length() {
+            return mLength;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= mLength) {
+                throw new IndexOutOfBoundsException("index: " + index + ", length: " + mLength);
+            }
+            return MASK_CHAR;
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > mLength || start > end) {
+                throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + mLength);
+            }
+            char[] chars = new char[end - start];
+            Arrays.fill(chars, MASK_CHAR);
+            return new String(chars);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, mLength).toString();
+        }
+    }
+}
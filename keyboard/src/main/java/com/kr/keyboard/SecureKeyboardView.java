@@ -0,0 +1,386 @@
+package com.kr.keyboard;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.inputmethodservice.Keyboard;
+import android.inputmethodservice.KeyboardView;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.widget.PopupWindow;
+import android.widget.TextView;
+
+/**
+ * 直接绘制到 Canvas 的安全键盘视图，用于替代 {@link KeyboardView}
+ * 1.按键几何信息在 setKeyboard 时预先计算，onDraw 中不分配对象
+ * 2.按下、重新设置标签时只刷新对应按键的区域
+ * 3.仍然使用 {@link Keyboard} 解析 keyboard_*.xml 布局
+ */
+public final class SecureKeyboardView extends View {
+
+    public static final int NOT_A_KEY = -1;
+
+    private static final int[] STATE_NORMAL = {};
+    private static final int[] STATE_PRESSED = {android.R.attr.state_pressed};
+
+    private static final Keyboard.Key[] EMPTY_KEYS = new Keyboard.Key[0];
+
+    private static final int REPEAT_START_DELAY = 400;
+    private static final int REPEAT_INTERVAL = 50;
+
+    private KeyboardLayout mLayout;
+    private Keyboard.Key[] mKeys = EMPTY_KEYS;
+    // 每个按键占 4 个 int：left, top, right, bottom（已包含 padding 偏移），由 KeyboardLayout 缓存
+    private int[] mKeyBounds = new int[0];
+
+    private Drawable mKeyBackground;
+    private final Rect mKeyPadding = new Rect();
+    private int mKeyTextSize;
+    private int mLabelTextSize;
+    private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private KeyboardView.OnKeyboardActionListener mListener;
+    // 分发按键时复用，避免每次按键创建 int[]
+    private final int[] mDispatchCodes = new int[1];
+
+    private int mPressedIndex = NOT_A_KEY;
+    private boolean mRepeated;
+    // 正在处理的触摸事件的时间，重复触发的按键没有对应的触摸事件，为 0
+    private long mTouchEventTime;
+    private final int mTouchSlop;
+
+    private boolean mPreviewEnabled = true;
+    private int mPreviewLayout;
+    private int mPreviewHeight;
+    private PopupWindow mPreviewPopup;
+    private TextView mPreviewText;
+    private final int[] mWindowLocation = new int[2];
+
+    private final Runnable mRepeatTask = new Runnable() {
+        @Override
+        public void run() {
+            if (mPressedIndex != NOT_A_KEY && mListener != null) {
+                mRepeated = true;
+                dispatchKey(mPressedIndex);
+                postDelayed(this, REPEAT_INTERVAL);
+            }
+        }
+    };
+
+    public SecureKeyboardView(Context context) {
+        this(context, null);
+    }
+
+    public SecureKeyboardView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public SecureKeyboardView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        TypedArray ta = context.obtainStyledAttributes(attrs, R.styleable.SecureKeyboardView, defStyleAttr, 0);
+        mKeyBackground = ta.getDrawable(R.styleable.SecureKeyboardView_android_keyBackground);
+        mKeyTextSize = ta.getDimensionPixelSize(R.styleable.SecureKeyboardView_android_keyTextSize,
+                (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 18, getResources().getDisplayMetrics()));
+        mLabelTextSize = ta.getDimensionPixelSize(R.styleable.SecureKeyboardView_android_labelTextSize, mKeyTextSize);
+        mPaint.setColor(ta.getColor(R.styleable.SecureKeyboardView_android_keyTextColor, 0xFF000000));
+        mPreviewLayout = ta.getResourceId(R.styleable.SecureKeyboardView_android_keyPreviewLayout, 0);
+        mPreviewHeight = ta.getDimensionPixelSize(R.styleable.SecureKeyboardView_android_keyPreviewHeight, 80);
+        ta.recycle();
+
+        mPaint.setTextAlign(Paint.Align.CENTER);
+        if (mKeyBackground != null) {
+            mKeyBackground.getPadding(mKeyPadding);
+        }
+        mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+    }
+
+    public void setOnKeyboardActionListener(KeyboardView.OnKeyboardActionListener listener) {
+        mListener = listener;
+    }
+
+    public Keyboard getKeyboard() {
+        return mLayout == null ? null : mLayout.getKeyboard();
+    }
+
+    /**
+     * 设置键盘布局并预先计算所有按键的绘制区域，只有布局变化时才需要调用
+     */
+    public void setKeyboard(Keyboard keyboard) {
+        if (keyboard == null) {
+            throw new NullPointerException("keyboard can not be null");
+        }
+        setKeyboardLayout(new KeyboardLayout(keyboard));
+    }
+
+    KeyboardLayout getKeyboardLayout() {
+        return mLayout;
+    }
+
+    /**
+     * 切换键盘布局，已经解析过的布局切换时不会分配对象，高度不变时也不会重新 layout
+     */
+    void setKeyboardLayout(KeyboardLayout layout) {
+        cancelPress();
+        boolean sizeChanged = mLayout == null
+                || mLayout.getContentWidth() != layout.getContentWidth()
+                || mLayout.getContentHeight() != layout.getContentHeight();
+        mLayout = layout;
+        mKeys = layout.getKeys();
+        mKeyBounds = layout.getKeyBounds(getPaddingLeft(), getPaddingTop());
+        if (sizeChanged) {
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (mLayout != null) {
+            mKeyBounds = mLayout.getKeyBounds(getPaddingLeft(), getPaddingTop());
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (mLayout == null) {
+            setMeasuredDimension(getPaddingLeft() + getPaddingRight(), getPaddingTop() + getPaddingBottom());
+            return;
+        }
+        int width = mLayout.getContentWidth() + getPaddingLeft() + getPaddingRight();
+        if (MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.UNSPECIFIED) {
+            width = Math.min(width, MeasureSpec.getSize(widthMeasureSpec));
+        }
+        setMeasuredDimension(width, mLayout.getContentHeight() + getPaddingTop() + getPaddingBottom());
+    }
+
+    /**
+     * 只刷新指定按键所在的区域，按键标签或状态变化后调用
+     */
+    public void invalidateKey(int keyIndex) {
+        if (keyIndex < 0 || keyIndex >= mKeys.length) {
+            return;
+        }
+        int offset = keyIndex * 4;
+        invalidate(mKeyBounds[offset], mKeyBounds[offset + 1], mKeyBounds[offset + 2], mKeyBounds[offset + 3]);
+    }
+
+    public void invalidateAllKeys() {
+        invalidate();
+    }
+
+    public void setPreviewEnabled(boolean previewEnabled) {
+        if (mPreviewEnabled == previewEnabled) {
+            return;
+        }
+        mPreviewEnabled = previewEnabled;
+        if (!previewEnabled) {
+            dismissPreview();
+        }
+    }
+
+    public boolean isPreviewEnabled() {
+        return mPreviewEnabled;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        final Keyboard.Key[] keys = mKeys;
+        final int[] bounds = mKeyBounds;
+        final Rect padding = mKeyPadding;
+        for (int i = 0; i < keys.length; i++) {
+            int offset = i * 4;
+            int left = bounds[offset];
+            int top = bounds[offset + 1];
+            int right = bounds[offset + 2];
+            int bottom = bounds[offset + 3];
+            if (canvas.quickReject(left, top, right, bottom, Canvas.EdgeType.AA)) {
+                continue;
+            }
+            Keyboard.Key key = keys[i];
+            if (mKeyBackground != null) {
+                mKeyBackground.setState(i == mPressedIndex ? STATE_PRESSED : STATE_NORMAL);
+                mKeyBackground.setBounds(left, top, right, bottom);
+                mKeyBackground.draw(canvas);
+            }
+            CharSequence label = mLayout.getLabel(i);
+            if (label != null) {
+                if (label.length() > 1) {
+                    mPaint.setTextSize(mLabelTextSize);
+                    mPaint.setTypeface(Typeface.DEFAULT_BOLD);
+                } else {
+                    mPaint.setTextSize(mKeyTextSize);
+                    mPaint.setTypeface(Typeface.DEFAULT);
+                }
+                float x = (left + padding.left + right - padding.right) / 2f;
+                float y = (top + padding.top + bottom - padding.bottom) / 2f
+                        + (mPaint.getTextSize() - mPaint.descent()) / 2f;
+                canvas.drawText(label, 0, label.length(), x, y, mPaint);
+            } else if (key.icon != null) {
+                Drawable icon = key.icon;
+                int iconWidth = icon.getIntrinsicWidth();
+                int iconHeight = icon.getIntrinsicHeight();
+                int iconLeft = (left + padding.left + right - padding.right - iconWidth) / 2;
+                int iconTop = (top + padding.top + bottom - padding.bottom - iconHeight) / 2;
+                icon.setBounds(iconLeft, iconTop, iconLeft + iconWidth, iconTop + iconHeight);
+                icon.draw(canvas);
+            }
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        int x = (int) event.getX();
+        int y = (int) event.getY();
+        mTouchEventTime = event.getEventTime();
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                pressKey(findKeyIndex(x, y));
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (mPressedIndex != NOT_A_KEY && !isInsideKey(mPressedIndex, x, y, mTouchSlop)) {
+                    // 手指滑出当前按键，切换到新的按键但不触发重复
+                    int index = findKeyIndex(x, y);
+                    if (index != mPressedIndex) {
+                        releaseKey(false);
+                        pressKey(index);
+                    }
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+                releaseKey(true);
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                releaseKey(false);
+                break;
+        }
+        mTouchEventTime = 0;
+        return true;
+    }
+
+    /**
+     * @return 触发当前按键回调的触摸事件时间（{@link android.os.SystemClock#uptimeMillis()}），
+     * 不是由触摸事件触发时返回 0
+     */
+    long getTouchEventTime() {
+        return mTouchEventTime;
+    }
+
+    private void pressKey(int index) {
+        mPressedIndex = index;
+        mRepeated = false;
+        if (index == NOT_A_KEY) {
+            return;
+        }
+        Keyboard.Key key = mKeys[index];
+        if (mListener != null) {
+            mListener.onPress(mLayout.getCode(index));
+        }
+        invalidateKey(index);
+        showPreview(index);
+        if (key.repeatable) {
+            postDelayed(mRepeatTask, REPEAT_START_DELAY);
+        }
+    }
+
+    private void releaseKey(boolean dispatch) {
+        removeCallbacks(mRepeatTask);
+        int index = mPressedIndex;
+        if (index == NOT_A_KEY) {
+            return;
+        }
+        mPressedIndex = NOT_A_KEY;
+        dismissPreview();
+        invalidateKey(index);
+        if (dispatch && !mRepeated) {
+            dispatchKey(index);
+        }
+        if (mListener != null) {
+            mListener.onRelease(mLayout.getCode(index));
+        }
+    }
+
+    private void cancelPress() {
+        removeCallbacks(mRepeatTask);
+        mPressedIndex = NOT_A_KEY;
+        dismissPreview();
+    }
+
+    private void dispatchKey(int index) {
+        if (mListener == null) {
+            return;
+        }
+        Keyboard.Key key = mKeys[index];
+        if (key.text != null) {
+            mListener.onText(key.text);
+        } else {
+            int code = mLayout.getCode(index);
+            mDispatchCodes[0] = code;
+            mListener.onKey(code, mDispatchCodes);
+        }
+    }
+
+    private int findKeyIndex(int x, int y) {
+        if (mLayout == null) {
+            return NOT_A_KEY;
+        }
+        int index = mLayout.findKey(x - getPaddingLeft(), y - getPaddingTop());
+        return index == KeyHitGrid.NOT_A_KEY ? NOT_A_KEY : index;
+    }
+
+    private boolean isInsideKey(int index, int x, int y, int slop) {
+        int offset = index * 4;
+        return x >= mKeyBounds[offset] - slop && x < mKeyBounds[offset + 2] + slop
+                && y >= mKeyBounds[offset + 1] - slop && y < mKeyBounds[offset + 3] + slop;
+    }
+
+    private void showPreview(int index) {
+        CharSequence label = mLayout.getLabel(index);
+        if (!mPreviewEnabled || mPreviewLayout == 0 || label == null) {
+            return;
+        }
+        if (mPreviewPopup == null) {
+            mPreviewText = (TextView) LayoutInflater.from(getContext()).inflate(mPreviewLayout, null);
+            mPreviewPopup = new PopupWindow(mPreviewText,
+                    ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+            mPreviewPopup.setBackgroundDrawable(null);
+            mPreviewPopup.setTouchable(false);
+            mPreviewPopup.setClippingEnabled(false);
+        }
+        mPreviewText.setText(label);
+        int offset = index * 4;
+        int width = mKeyBounds[offset + 2] - mKeyBounds[offset];
+        getLocationInWindow(mWindowLocation);
+        int x = mWindowLocation[0] + mKeyBounds[offset];
+        int y = mWindowLocation[1] + mKeyBounds[offset + 1] - mPreviewHeight;
+        if (mPreviewPopup.isShowing()) {
+            mPreviewPopup.update(x, y, width, mPreviewHeight);
+        } else {
+            mPreviewPopup.setWidth(width);
+            mPreviewPopup.setHeight(mPreviewHeight);
+            mPreviewPopup.showAtLocation(this, Gravity.NO_GRAVITY, x, y);
+        }
+    }
+
+    private void dismissPreview() {
+        if (mPreviewPopup != null && mPreviewPopup.isShowing()) {
+            mPreviewPopup.dismiss();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        cancelPress();
+    }
+}
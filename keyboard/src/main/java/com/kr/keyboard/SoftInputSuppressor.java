@@ -0,0 +1,76 @@
+package com.kr.keyboard;
+
+import android.content.Context;
+import android.os.Build;
+import android.view.inputmethod.InputMethodManager;
+import android.widget.EditText;
+
+import java.lang.reflect.Method;
+
+/**
+ * 禁止输入框弹出系统软键盘
+ * 1.5.0 以上直接调用公开的 setShowSoftInputOnFocus
+ * 2.5.0 以下通过反射调用隐藏方法，Method 在进程内只查找一次，找不到时不再重试
+ * 3.窗口获得焦点、restartInput 等情况下系统键盘仍可能短暂弹出，获得焦点时再主动隐藏一次
+ * 只能在主线程调用
+ */
+final class SoftInputSuppressor {
+
+    private static Method sMethod;
+    private static boolean sMethodResolved;
+
+    private SoftInputSuppressor() {
+    }
+
+    /**
+     * 点击和获得焦点时不再弹出系统软键盘
+     *
+     * @return 是否设置成功，失败时只能依赖 {@link #hide(EditText)}
+     */
+    static boolean suppress(EditText editText) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            editText.setShowSoftInputOnFocus(false);
+            return true;
+        }
+        Method method = resolveMethod();
+        if (method == null) {
+            return false;
+        }
+        try {
+            method.invoke(editText, false);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 隐藏已经弹出的系统软键盘，没有弹出时不做任何事
+     */
+    static void hide(EditText editText) {
+        if (editText.getWindowToken() == null) {
+            return;
+        }
+        InputMethodManager imm = (InputMethodManager) editText.getContext().getSystemService(Context.INPUT_METHOD_SERVICE);
+        if (imm != null && imm.isActive(editText)) {
+            imm.hideSoftInputFromWindow(editText.getWindowToken(), 0);
+        }
+    }
+
+    private static Method resolveMethod() {
+        if (!sMethodResolved) {
+            sMethodResolved = true;
+            // 4.1 - 4.4 是隐藏的 setShowSoftInputOnFocus，4.0 叫 setSoftInputShownOnFocus
+            String name = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                    ? "setShowSoftInputOnFocus" : "setSoftInputShownOnFocus";
+            try {
+                Method method = EditText.class.getMethod(name, boolean.class);
+                method.setAccessible(true);
+                sMethod = method;
+            } catch (Exception e) {
+                sMethod = null;
+            }
+        }
+        return sMethod;
+    }
+}
@@ -0,0 +1,91 @@
+package com.kr.keyboard;
+
+import android.text.Editable;
+
+/**
+ * 一帧内累计的文字修改，提交时合并为一次 {@link Editable#replace}
+ * 1.先删除光标前的字符，再在同一位置插入文字，删除时优先抵消还没有提交的插入
+ * 2.合并后 TextWatcher、span 和重新布局在一帧内只触发一次
+ */
+final class TextBatch {
+
+    private final StringBuilder mInsert = new StringBuilder();
+    private int mDeleteCount;
+
+    void insert(CharSequence text) {
+        mInsert.append(text);
+    }
+
+    /**
+     * 删除光标前 count 个字符（包括还没有提交的插入）
+     */
+    void delete(int count) {
+        int cancelled = Math.min(count, mInsert.length());
+        mInsert.setLength(mInsert.length() - cancelled);
+        mDeleteCount += count - cancelled;
+    }
+
+    /**
+     * @return 还没有提交的插入长度
+     */
+    int getInsertLength() {
+        return mInsert.length();
+    }
+
+    /**
+     * @return 提交时需要删除的光标前的字符数
+     */
+    int getDeleteCount() {
+        return mDeleteCount;
+    }
+
+    boolean isEmpty() {
+        return mDeleteCount == 0 && mInsert.length() == 0;
+    }
+
+    /**
+     * 提交到 editable 并清空，删除超出文本开头的部分会被忽略
+     *
+     * @param cursor 光标位置
+     * @return 是否修改了 editable
+     */
+    boolean apply(Editable editable, int cursor) {
+        if (isEmpty() || cursor < 0) {
+            clear();
+            return false;
+        }
+        int deleteStart = Math.max(0, cursor - mDeleteCount);
+        boolean changed = deleteStart < cursor || mInsert.length() > 0;
+        if (changed) {
+            editable.replace(deleteStart, cursor, mInsert);
+        }
+        clear();
+        return changed;
+    }
+
+    void clear() {
+        mInsert.setLength(0);
+        mDeleteCount = 0;
+    }
+
+    /**
+     * 光标前一个单词的长度，包括单词后面的空白，用于长按删除键时按单词删除
+     *
+     * @param end 光标位置
+     */
+    static int wordLengthBefore(CharSequence text, int end) {
+        int i = end;
+        while (i > 0 && Character.isWhitespace(text.charAt(i - 1))) {
+            i--;
+        }
+        if (i > 0 && !Character.isLetterOrDigit(text.charAt(i - 1))) {
+            // 标点单独作为一个单词
+            i--;
+        } else {
+            while (i > 0 && Character.isLetterOrDigit(text.charAt(i - 1))) {
+                i--;
+            }
+        }
+        return end - i;
+    }
+}
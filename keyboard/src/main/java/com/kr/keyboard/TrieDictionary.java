@@ -0,0 +1,220 @@
+package com.kr.keyboard;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 联想词典，直接读取 TrieDictionaryWriter（keyboard 模块的 test 源码）生成的二进制 trie，数据通常是内存映射的文件，不占用 Java 堆
+ * 1.前缀逐个字符在子节点中二分查找
+ * 2.每个节点保存子树中的最大词频，用二叉堆按词频从高到低优先展开，只访问得到结果所需的节点
+ * 3.查找使用预分配的数组，除了返回的字符串之外不分配对象
+ * 不依赖 Android，只能在一个线程中使用
+ * <p>
+ * 文件格式（大端）：
+ * 头部 magic、version、节点数、根节点偏移，各 4 字节；
+ * 节点 子节点数 2 字节、词频 1 字节（0 表示不是单词）、子树最大词频 1 字节，
+ * 之后是按字符排序的子节点，每个子节点 字符 2 字节、节点偏移 4 字节
+ */
+final class TrieDictionary {
+
+    static final int MAGIC = 0x4B524454;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int NODE_HEADER_SIZE = 4;
+    static final int CHILD_SIZE = 6;
+
+    // 最多展开的候选节点数，超过后放弃剩余的低频分支
+    static final int MAX_ENTRIES = 1024;
+    static final int MAX_WORD_LENGTH = 64;
+    private static final int NO_CHAR = -1;
+
+    private final ByteBuffer mBuffer;
+    private final int mRoot;
+
+    // 候选节点：节点偏移、父候选、到达这个节点的字符、优先级（词频）、是否是完整单词
+    private final int[] mEntryNode = new int[MAX_ENTRIES];
+    private final int[] mEntryParent = new int[MAX_ENTRIES];
+    private final int[] mEntryChar = new int[MAX_ENTRIES];
+    private final int[] mEntryScore = new int[MAX_ENTRIES];
+    private final boolean[] mEntryWord = new boolean[MAX_ENTRIES];
+    private int mEntryCount;
+    // 还没有展开的候选组成的二叉堆，保存候选的下标，堆顶优先级最高
+    private final int[] mHeap = new int[MAX_ENTRIES];
+    private int mHeapSize;
+    private final char[] mPath = new char[MAX_WORD_LENGTH];
+    private final StringBuilder mBuilder = new StringBuilder(MAX_WORD_LENGTH);
+
+    /**
+     * @throws IllegalArgumentException 不是词典文件或者版本不支持
+     */
+    TrieDictionary(ByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("not a dictionary file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("unsupported dictionary version: " + buffer.getInt(4));
+        }
+        mBuffer = buffer;
+        mRoot = buffer.getInt(12);
+    }
+
+    /**
+     * 查找以 text[start, end) 为前缀的词频最高的单词，前缀不区分大小写，返回的单词保留输入的前缀
+     * 和输入完全相同的单词不返回
+     *
+     * @param out 接收结果，最多返回 out.length 个
+     * @return 结果数量
+     */
+    int suggest(CharSequence text, int start, int end, String[] out) {
+        if (end - start >= MAX_WORD_LENGTH) {
+            return 0;
+        }
+        int node = mRoot;
+        for (int i = start; i < end && node >= 0; i++) {
+            node = findChild(node, Character.toLowerCase(text.charAt(i)));
+        }
+        if (node < 0) {
+            return 0;
+        }
+
+        mEntryCount = 0;
+        mHeapSize = 0;
+        push(node, -1, NO_CHAR, best(node), false);
+        int found = 0;
+        while (found < out.length) {
+            int entry = popMax();
+            if (entry < 0) {
+                break;
+            }
+            if (mEntryWord[entry]) {
+                out[found++] = buildWord(text, start, end, entry);
+                continue;
+            }
+            int current = mEntryNode[entry];
+            // 前缀本身是单词时路径为空，结果和输入相同，不作为联想
+            if (frequency(current) > 0 && mEntryParent[entry] >= 0) {
+                push(current, entry, NO_CHAR, frequency(current), true);
+            }
+            int childCount = childCount(current);
+            for (int i = 0; i < childCount; i++) {
+                int child = childOffset(current, i);
+                push(child, entry, childChar(current, i), best(child), false);
+            }
+        }
+        return found;
+    }
+
+    private int findChild(int node, char c) {
+        int low = 0;
+        int high = childCount(node) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = childChar(node, mid);
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return childOffset(node, mid);
+            }
+        }
+        return -1;
+    }
+
+    private void push(int node, int parent, int c, int score, boolean word) {
+        if (mEntryCount == MAX_ENTRIES || score == 0) {
+            return;
+        }
+        int entry = mEntryCount++;
+        mEntryNode[entry] = node;
+        mEntryParent[entry] = parent;
+        mEntryChar[entry] = c;
+        mEntryScore[entry] = score;
+        mEntryWord[entry] = word;
+
+        int i = mHeapSize++;
+        while (i > 0) {
+            int parentIndex = (i - 1) >>> 1;
+            if (!higher(entry, mHeap[parentIndex])) {
+                break;
+            }
+            mHeap[i] = mHeap[parentIndex];
+            i = parentIndex;
+        }
+        mHeap[i] = entry;
+    }
+
+    /**
+     * 取出优先级最高的候选，每次 O(log n)
+     */
+    private int popMax() {
+        if (mHeapSize == 0) {
+            return -1;
+        }
+        int max = mHeap[0];
+        int last = mHeap[--mHeapSize];
+        int i = 0;
+        int half = mHeapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < mHeapSize && higher(mHeap[child + 1], mHeap[child])) {
+                child++;
+            }
+            if (!higher(mHeap[child], last)) {
+                break;
+            }
+            mHeap[i] = mHeap[child];
+            i = child;
+        }
+        mHeap[i] = last;
+        return max;
+    }
+
+    /**
+     * 词频高的优先，同词频时单词优先，这样高频词会先于同一子树中更长的词返回；
+     * 仍然相同时先加入的优先，保证结果确定
+     */
+    private boolean higher(int a, int b) {
+        if (mEntryScore[a] != mEntryScore[b]) {
+            return mEntryScore[a] > mEntryScore[b];
+        }
+        if (mEntryWord[a] != mEntryWord[b]) {
+            return mEntryWord[a];
+        }
+        return a < b;
+    }
+
+    private String buildWord(CharSequence text, int start, int end, int entry) {
+        int length = 0;
+        for (int e = entry; e >= 0 && length < MAX_WORD_LENGTH; e = mEntryParent[e]) {
+            if (mEntryChar[e] != NO_CHAR) {
+                mPath[length++] = (char) mEntryChar[e];
+            }
+        }
+        mBuilder.setLength(0);
+        mBuilder.append(text, start, end);
+        for (int i = length - 1; i >= 0; i--) {
+            mBuilder.append(mPath[i]);
+        }
+        return mBuilder.toString();
+    }
+
+    private int childCount(int node) {
+        return mBuffer.getShort(node) & 0xFFFF;
+    }
+
+    private int frequency(int node) {
+        return mBuffer.get(node + 2) & 0xFF;
+    }
+
+    private int best(int node) {
+        return mBuffer.get(node + 3) & 0xFF;
+    }
+
+    private char childChar(int node, int index) {
+        return mBuffer.getChar(node + NODE_HEADER_SIZE + index * CHILD_SIZE);
+    }
+
+    private int childOffset(int node, int index) {
+        return mBuffer.getInt(node + NODE_HEADER_SIZE + index * CHILD_SIZE + 2);
+    }
+}
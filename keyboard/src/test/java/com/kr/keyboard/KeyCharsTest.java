@@ -0,0 +1,36 @@
+package com.kr.keyboard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * KeyChars 的本地单元测试
+ */
+public class KeyCharsTest {
+
+    @Test
+    public void charIsCached() {
+        assertSame(KeyChars.of('a'), KeyChars.of('a'));
+        assertSame(KeyChars.of(0x4E2D), KeyChars.ofCodePoint(0x4E2D));
+        assertEquals("中", KeyChars.of(0x4E2D).toString());
+    }
+
+    @Test
+    public void supplementaryCodePointIsSurrogatePair() {
+        assertEquals(new String(Character.toChars(0x1F600)), KeyChars.ofCodePoint(0x1F600).toString());
+    }
+
+    @Test
+    public void invalidCodePointIsNull() {
+        assertNull(KeyChars.ofCodePoint(-1));
+        assertNull(KeyChars.ofCodePoint(Character.MAX_CODE_POINT + 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ofRejectsSupplementaryCodePoint() {
+        KeyChars.of(0x1F600);
+    }
+}
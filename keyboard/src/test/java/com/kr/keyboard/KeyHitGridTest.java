@@ -0,0 +1,123 @@
+package com.kr.keyboard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * KeyHitGrid 的本地单元测试
+ */
+public class KeyHitGridTest {
+
+    private static final int KEY_SIZE = 10;
+
+    /**
+     * 一行 count 个相邻的按键，每个 KEY_SIZE x KEY_SIZE
+     */
+    private static int[] row(int count) {
+        int[] bounds = new int[count * 4];
+        for (int i = 0; i < count; i++) {
+            bounds[i * 4] = i * KEY_SIZE;
+            bounds[i * 4 + 1] = 0;
+            bounds[i * 4 + 2] = (i + 1) * KEY_SIZE;
+            bounds[i * 4 + 3] = KEY_SIZE;
+        }
+        return bounds;
+    }
+
+    @Test
+    public void findsKeyInsideBounds() {
+        KeyHitGrid grid = new KeyHitGrid(row(3), 3 * KEY_SIZE, KEY_SIZE);
+        assertEquals(0, grid.findKey(0, 0));
+        assertEquals(1, grid.findKey(15, 5));
+        assertEquals(2, grid.findKey(29, 9));
+    }
+
+    @Test
+    public void outsideWithoutSlopIsNotAKey() {
+        int[] bounds = {0, 0, 10, 10, 20, 0, 30, 10};
+        KeyHitGrid grid = new KeyHitGrid(bounds, 30, 10);
+        assertEquals(KeyHitGrid.NOT_A_KEY, grid.findKey(15, 5));
+    }
+
+    @Test
+    public void slopSelectsNearestKey() {
+        // 两个按键之间有 10 的空隙
+        int[] bounds = {0, 0, 10, 10, 20, 0, 30, 10};
+        KeyHitGrid grid = new KeyHitGrid(bounds, 30, 10);
+        grid.setSlop(0, 10);
+        grid.setSlop(1, 10);
+        assertEquals(0, grid.findKey(12, 5));
+        assertEquals(1, grid.findKey(18, 5));
+    }
+
+    @Test
+    public void slopIsPerKey() {
+        int[] bounds = {0, 0, 10, 10, 20, 0, 30, 10};
+        KeyHitGrid grid = new KeyHitGrid(bounds, 30, 10);
+        // 触摸点离第 0 个按键更近，但只在第 1 个按键的扩展范围内
+        grid.setSlop(0, 1);
+        grid.setSlop(1, 10);
+        assertEquals(1, grid.findKey(13, 5));
+        assertEquals(0, grid.findKey(10, 5));
+    }
+
+    @Test
+    public void slopCanBeRemoved() {
+        int[] bounds = {0, 0, 10, 10, 20, 0, 30, 10};
+        KeyHitGrid grid = new KeyHitGrid(bounds, 30, 10);
+        grid.setSlop(0, 10);
+        assertEquals(0, grid.findKey(15, 5));
+        grid.setSlop(0, -5);
+        assertEquals(0, grid.getSlop(0));
+        assertEquals(KeyHitGrid.NOT_A_KEY, grid.findKey(15, 5));
+    }
+
+    @Test
+    public void keyInsideBoundsWinsOverSlop() {
+        // 第 0 个按键的扩展范围覆盖整个第 1 个按键
+        int[] bounds = {0, 0, 10, 10, 10, 0, 20, 10};
+        KeyHitGrid grid = new KeyHitGrid(bounds, 20, 10);
+        grid.setSlop(0, 20);
+        assertEquals(1, grid.findKey(11, 5));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsUnknownKey() {
+        new KeyHitGrid(row(1), KEY_SIZE, KEY_SIZE).setSlop(1, 0);
+    }
+
+    @Test
+    public void overflowingCellKeepsEveryKey() {
+        int count = KeyHitGrid.INITIAL_SLOTS * 3;
+        int width = count * KEY_SIZE;
+        KeyHitGrid grid = new KeyHitGrid(row(count), width, KEY_SIZE);
+        // 扩展范围覆盖整行，每个格子都与所有按键相交
+        for (int i = 0; i < count; i++) {
+            grid.setSlop(i, width);
+        }
+        assertTrue(grid.getSlots() >= count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, grid.findKey(i * KEY_SIZE + KEY_SIZE / 2, KEY_SIZE / 2));
+        }
+    }
+
+    @Test
+    public void overflowingCellSelectsNearestKey() {
+        int count = KeyHitGrid.INITIAL_SLOTS * 2;
+        int keysWidth = count * KEY_SIZE;
+        // 按键右侧留出空白，空白中的格子只能通过扩展范围命中
+        int width = keysWidth + 10 * KEY_SIZE;
+        KeyHitGrid grid = new KeyHitGrid(row(count), width, KEY_SIZE);
+        for (int i = 0; i < count; i++) {
+            grid.setSlop(i, width);
+        }
+        // 最后加入的按键距离最近，格子装满后也不能被丢弃
+        assertEquals(count - 1, grid.findKey(keysWidth + 5 * KEY_SIZE, KEY_SIZE / 2));
+        // 缩小扩展范围后重新加入，仍然命中
+        grid.setSlop(count - 1, 0);
+        grid.setSlop(count - 1, width);
+        assertEquals(count - 1, grid.findKey(keysWidth + 5 * KEY_SIZE, KEY_SIZE / 2));
+    }
+}
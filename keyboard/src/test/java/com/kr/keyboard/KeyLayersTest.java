@@ -0,0 +1,73 @@
+package com.kr.keyboard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * KeyLayers 的本地单元测试
+ */
+public class KeyLayersTest {
+
+    private static final int KEYCODE_SHIFT = -1;
+
+    private static KeyLayers layers() {
+        return new KeyLayers(new int[]{'q', '1', KEYCODE_SHIFT}, new CharSequence[]{"q", "1", null});
+    }
+
+    @Test
+    public void shiftCyclesThroughLayers() {
+        assertEquals(KeyLayers.LAYER_SHIFT, KeyLayers.shiftLayer(KeyLayers.LAYER_NORMAL, false));
+        assertEquals(KeyLayers.LAYER_NORMAL, KeyLayers.shiftLayer(KeyLayers.LAYER_SHIFT, false));
+        assertEquals(KeyLayers.LAYER_CAPS_LOCK, KeyLayers.shiftLayer(KeyLayers.LAYER_SHIFT, true));
+        assertEquals(KeyLayers.LAYER_NORMAL, KeyLayers.shiftLayer(KeyLayers.LAYER_CAPS_LOCK, false));
+        assertEquals(KeyLayers.LAYER_NORMAL, KeyLayers.shiftLayer(KeyLayers.LAYER_CAPS_LOCK, true));
+    }
+
+    @Test
+    public void doubleTapFromNormalOnlyShifts() {
+        assertEquals(KeyLayers.LAYER_SHIFT, KeyLayers.shiftLayer(KeyLayers.LAYER_NORMAL, true));
+    }
+
+    @Test
+    public void characterEndsShiftButNotCapsLock() {
+        assertEquals(KeyLayers.LAYER_NORMAL, KeyLayers.layerAfterCharacter(KeyLayers.LAYER_NORMAL));
+        assertEquals(KeyLayers.LAYER_NORMAL, KeyLayers.layerAfterCharacter(KeyLayers.LAYER_SHIFT));
+        assertEquals(KeyLayers.LAYER_CAPS_LOCK, KeyLayers.layerAfterCharacter(KeyLayers.LAYER_CAPS_LOCK));
+    }
+
+    @Test
+    public void upperLayersOnlyChangeLetters() {
+        KeyLayers layers = layers();
+        for (int layer : new int[]{KeyLayers.LAYER_SHIFT, KeyLayers.LAYER_CAPS_LOCK}) {
+            layers.setLayer(layer);
+            assertEquals('Q', layers.getCode(0));
+            assertEquals("Q", layers.getLabel(0).toString());
+            assertEquals('1', layers.getCode(1));
+            assertEquals("1", layers.getLabel(1).toString());
+            assertEquals(KEYCODE_SHIFT, layers.getCode(2));
+            assertNull(layers.getLabel(2));
+        }
+        layers.setLayer(KeyLayers.LAYER_NORMAL);
+        assertEquals('q', layers.getCode(0));
+        assertEquals("q", layers.getLabel(0).toString());
+    }
+
+    @Test
+    public void contentFollowsLayer() {
+        KeyLayers layers = layers();
+        // 打乱后第 1 个按键显示第 0 个位置的内容
+        layers.setContent(1, 0);
+        layers.setContent(0, 1);
+        layers.setLayer(KeyLayers.LAYER_SHIFT);
+        assertEquals('Q', layers.getCode(1));
+        assertEquals('1', layers.getCode(0));
+        assertEquals('q', layers.getBaseCode(layers.getContent(1)));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsUnknownLayer() {
+        layers().setLayer(3);
+    }
+}
@@ -0,0 +1,90 @@
+package com.kr.keyboard;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * KeyPermutation 的本地单元测试
+ */
+public class KeyPermutationTest {
+
+    private static final int TRIALS = 2000;
+
+    @Test
+    public void staysInsideGroups() {
+        // 与 KeyShuffler 同时打乱数字和字母时相同：数字一组，字母一组
+        int[] groupEnds = {10, 36};
+        int[] out = new int[36];
+        Random random = new Random(1);
+        for (int trial = 0; trial < TRIALS; trial++) {
+            KeyPermutation.permute(out, groupEnds, random);
+            assertPermutation(out);
+            int groupStart = 0;
+            for (int groupEnd : groupEnds) {
+                for (int i = groupStart; i < groupEnd; i++) {
+                    assertTrue(out[i] >= groupStart && out[i] < groupEnd);
+                }
+                groupStart = groupEnd;
+            }
+        }
+    }
+
+    @Test
+    public void positionsOutsideGroupsAreNotMoved() {
+        int[] out = new int[8];
+        KeyPermutation.permute(out, new int[]{5}, new Random(1));
+        for (int i = 5; i < out.length; i++) {
+            assertEquals(i, out[i]);
+        }
+    }
+
+    @Test
+    public void noGroupsIsIdentity() {
+        int[] out = new int[5];
+        KeyPermutation.permute(out, new int[0], new Random(1));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, out);
+    }
+
+    @Test
+    public void singleKeyGroupsAreNotMoved() {
+        int[] out = new int[3];
+        KeyPermutation.permute(out, new int[]{1, 2, 3}, new Random(1));
+        assertArrayEquals(new int[]{0, 1, 2}, out);
+    }
+
+    @Test
+    public void everyPositionReachesEveryValueOfItsGroup() {
+        int[] groupEnds = {4, 10};
+        int[] out = new int[10];
+        boolean[][] seen = new boolean[10][10];
+        Random random = new Random(1);
+        for (int trial = 0; trial < TRIALS; trial++) {
+            KeyPermutation.permute(out, groupEnds, random);
+            for (int i = 0; i < out.length; i++) {
+                seen[i][out[i]] = true;
+            }
+        }
+        int groupStart = 0;
+        for (int groupEnd : groupEnds) {
+            for (int i = groupStart; i < groupEnd; i++) {
+                for (int value = groupStart; value < groupEnd; value++) {
+                    assertTrue("position " + i + " never showed " + value, seen[i][value]);
+                }
+            }
+            groupStart = groupEnd;
+        }
+    }
+
+    private static void assertPermutation(int[] out) {
+        boolean[] used = new boolean[out.length];
+        for (int value : out) {
+            assertTrue(value >= 0 && value < out.length && !used[value]);
+            used[value] = true;
+        }
+    }
+}
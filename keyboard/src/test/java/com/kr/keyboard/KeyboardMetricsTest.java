@@ -0,0 +1,119 @@
+package com.kr.keyboard;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * KeyboardMetrics 记录和分位数的本地单元测试，不涉及掉帧统计
+ */
+public class KeyboardMetricsTest {
+
+    private static final int METRIC = KeyboardMetrics.METRIC_PRESS_TO_COMMIT;
+
+    private static void recordMicros(KeyboardMetrics metrics, long micros) {
+        metrics.record(METRIC, micros * 1000);
+    }
+
+    @Test
+    public void emptyMetricReportsZero() {
+        KeyboardMetrics metrics = new KeyboardMetrics();
+        assertEquals(0, metrics.getCount(METRIC));
+        assertEquals(0, metrics.getMaxMicros(METRIC));
+        assertEquals(0, metrics.getPercentileMicros(METRIC, 0));
+        assertEquals(0, metrics.getPercentileMicros(METRIC, 50));
+        assertEquals(0, metrics.getPercentileMicros(METRIC, 100));
+    }
+
+    @Test
+    public void singleSampleIsEveryPercentile() {
+        KeyboardMetrics metrics = new KeyboardMetrics();
+        recordMicros(metrics, 5);
+        assertEquals(1, metrics.getCount(METRIC));
+        assertEquals(5, metrics.getTotalMicros(METRIC));
+        assertEquals(1, metrics.getBucketCount(METRIC, 3));
+        // 分位数取桶的上限 8，但不超过最大值
+        assertEquals(5, metrics.getPercentileMicros(METRIC, 0));
+        assertEquals(5, metrics.getPercentileMicros(METRIC, 50));
+        assertEquals(5, metrics.getPercentileMicros(METRIC, 100));
+        // 其他指标不受影响
+        assertEquals(0, metrics.getCount(KeyboardMetrics.METRIC_SHOW));
+    }
+
+    @Test
+    public void valuesOnBucketBoundaries() {
+        KeyboardMetrics metrics = new KeyboardMetrics();
+        metrics.record(METRIC, 999);
+        metrics.record(METRIC, -1);
+        assertEquals(2, metrics.getBucketCount(METRIC, 0));
+        recordMicros(metrics, 1);
+        assertEquals(1, metrics.getBucketCount(METRIC, 1));
+        recordMicros(metrics, 1023);
+        assertEquals(1, metrics.getBucketCount(METRIC, 10));
+        recordMicros(metrics, 1024);
+        assertEquals(1, metrics.getBucketCount(METRIC, 11));
+        assertEquals(1024, KeyboardMetrics.getBucketUpperBoundMicros(10));
+
+        int last = KeyboardMetrics.BUCKET_COUNT - 1;
+        recordMicros(metrics, 1L << last);
+        recordMicros(metrics, Long.MAX_VALUE / 1000);
+        assertEquals(2, metrics.getBucketCount(METRIC, last));
+        assertEquals(Long.MAX_VALUE, KeyboardMetrics.getBucketUpperBoundMicros(last));
+        assertEquals(Long.MAX_VALUE / 1000, metrics.getMaxMicros(METRIC));
+        assertEquals(metrics.getMaxMicros(METRIC), metrics.getPercentileMicros(METRIC, 100));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void bucketOutOfRangeThrows() {
+        new KeyboardMetrics().getBucketCount(METRIC, KeyboardMetrics.BUCKET_COUNT);
+    }
+
+    @Test
+    public void percentileIsUpperBoundOfItsBucket() {
+        KeyboardMetrics metrics = new KeyboardMetrics();
+        for (int i = 0; i < 90; i++) {
+            recordMicros(metrics, 3);
+        }
+        for (int i = 0; i < 10; i++) {
+            recordMicros(metrics, 100);
+        }
+        assertEquals(4, metrics.getPercentileMicros(METRIC, 0));
+        assertEquals(4, metrics.getPercentileMicros(METRIC, 90));
+        assertEquals(100, metrics.getPercentileMicros(METRIC, 91));
+        assertEquals(100, metrics.getPercentileMicros(METRIC, 100));
+    }
+
+    @Test
+    public void percentilesAreMonotonic() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            KeyboardMetrics metrics = new KeyboardMetrics();
+            int samples = 1 + random.nextInt(500);
+            for (int i = 0; i < samples; i++) {
+                // 对数分布，覆盖大部分桶
+                recordMicros(metrics, (long) Math.pow(2, random.nextDouble() * 20));
+            }
+            long p50 = metrics.getPercentileMicros(METRIC, 50);
+            long p95 = metrics.getPercentileMicros(METRIC, 95);
+            long p99 = metrics.getPercentileMicros(METRIC, 99);
+            assertTrue(p50 > 0);
+            assertTrue(p50 <= p95);
+            assertTrue(p95 <= p99);
+            assertTrue(p99 <= metrics.getMaxMicros(METRIC));
+        }
+    }
+
+    @Test
+    public void resetClearsEverything() {
+        KeyboardMetrics metrics = new KeyboardMetrics();
+        recordMicros(metrics, 7);
+        metrics.reset();
+        assertEquals(0, metrics.getCount(METRIC));
+        assertEquals(0, metrics.getTotalMicros(METRIC));
+        assertEquals(0, metrics.getBucketCount(METRIC, 3));
+        assertEquals(0, metrics.getPercentileMicros(METRIC, 99));
+    }
+}
@@ -0,0 +1,128 @@
+package com.kr.keyboard;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * KeyboardSnapshot 读写的本地单元测试，不涉及 Keyboard 的创建
+ */
+public class KeyboardSnapshotTest {
+
+    /**
+     * 两个按键的快照：一个字符键，一个带图标、可以重复的删除键
+     */
+    private static byte[] twoKeys() {
+        try {
+            return writeTwoKeys();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static byte[] writeTwoKeys() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(KeyboardSnapshot.MAGIC);
+        out.writeInt(KeyboardSnapshot.VERSION);
+        out.writeInt(2);
+        out.writeInt(1080);
+        out.writeInt(400);
+        int[] geometry = {0, 0, 108, 100, 0, 1, 108, 0, 108, 100, 0, 2};
+        for (int value : geometry) {
+            out.writeInt(value);
+        }
+        // 字符键：code、label、popupCharacters
+        out.writeShort(1);
+        out.writeInt('a');
+        out.writeBoolean(true);
+        out.writeUTF("a");
+        out.writeBoolean(false);
+        out.writeBoolean(true);
+        out.writeUTF("àá");
+        out.writeInt(0);
+        out.writeInt(0);
+        // 删除键：图标和重复
+        out.writeShort(1);
+        out.writeInt(-5);
+        out.writeBoolean(false);
+        out.writeBoolean(false);
+        out.writeBoolean(false);
+        out.writeInt(0x7f080001);
+        out.writeInt(1);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static KeyboardSnapshot read(byte[] bytes) throws IOException {
+        return KeyboardSnapshot.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    private static byte[] write(KeyboardSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        snapshot.write(out);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void writeThenReadRoundTrips() throws IOException {
+        byte[] original = twoKeys();
+        byte[] written = write(read(original));
+        assertArrayEquals(original, written);
+        assertArrayEquals(written, write(read(written)));
+    }
+
+    @Test
+    public void rejectsOtherFiles() {
+        byte[] bytes = twoKeys();
+        bytes[0] ^= 1;
+        assertCorrupt(bytes);
+    }
+
+    @Test
+    public void rejectsNegativeKeyCount() {
+        assertCorrupt(withKeyCount(-1));
+    }
+
+    @Test
+    public void rejectsHugeKeyCountWithoutAllocating() {
+        assertCorrupt(withKeyCount(Integer.MAX_VALUE));
+        assertCorrupt(withKeyCount(KeyboardSnapshot.MAX_KEY_COUNT + 1));
+    }
+
+    @Test
+    public void rejectsTruncatedFiles() {
+        byte[] bytes = twoKeys();
+        for (int length = 0; length < bytes.length; length++) {
+            assertCorrupt(Arrays.copyOf(bytes, length));
+        }
+    }
+
+    private static byte[] withKeyCount(int keyCount) {
+        byte[] bytes = twoKeys();
+        bytes[8] = (byte) (keyCount >>> 24);
+        bytes[9] = (byte) (keyCount >>> 16);
+        bytes[10] = (byte) (keyCount >>> 8);
+        bytes[11] = (byte) keyCount;
+        return bytes;
+    }
+
+    private static void assertCorrupt(byte[] bytes) {
+        try {
+            read(bytes);
+            fail("read a corrupt snapshot of " + bytes.length + " bytes");
+        } catch (IOException expected) {
+            // 损坏的文件只能以 IOException 结束，由 KeyboardLayoutCompiler.load 删除
+        }
+    }
+}
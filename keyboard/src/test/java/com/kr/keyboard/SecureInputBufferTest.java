@@ -0,0 +1,105 @@
+package com.kr.keyboard;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * SecureInputBuffer 的本地单元测试
+ */
+public class SecureInputBufferTest {
+
+    private static SecureInputBuffer filled(int capacity, String text) {
+        SecureInputBuffer buffer = new SecureInputBuffer(capacity);
+        for (int i = 0; i < text.length(); i++) {
+            assertTrue(buffer.append(text.charAt(i)));
+        }
+        return buffer;
+    }
+
+    /**
+     * 读取底层数组，确认清零的是实际保存明文的内存而不只是长度
+     */
+    private static char[] backing(SecureInputBuffer buffer) throws ReflectiveOperationException {
+        Field field = SecureInputBuffer.class.getDeclaredField("mChars");
+        field.setAccessible(true);
+        return (char[]) field.get(buffer);
+    }
+
+    private static String contents(SecureInputBuffer buffer) {
+        char[] chars = new char[buffer.length()];
+        buffer.getChars(chars, 0);
+        return new String(chars);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityMustBePositive() {
+        new SecureInputBuffer(0);
+    }
+
+    @Test
+    public void appendStopsAtCapacity() {
+        SecureInputBuffer buffer = filled(4, "1234");
+        assertEquals(4, buffer.capacity());
+        assertFalse(buffer.append('5'));
+        assertEquals(4, buffer.length());
+        assertEquals("1234", contents(buffer));
+    }
+
+    @Test
+    public void deleteLastRemovesAndZeroesTheLastChar() throws ReflectiveOperationException {
+        SecureInputBuffer buffer = filled(4, "abc");
+        assertTrue(buffer.deleteLast());
+        assertEquals("ab", contents(buffer));
+        assertArrayEquals(new char[]{'a', 'b', 0, 0}, backing(buffer));
+
+        assertTrue(buffer.deleteLast());
+        assertTrue(buffer.deleteLast());
+        assertFalse(buffer.deleteLast());
+        assertEquals(0, buffer.length());
+
+        assertTrue(buffer.append('x'));
+        assertEquals('x', buffer.charAt(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void charAtBeyondLengthThrows() {
+        filled(4, "ab").charAt(2);
+    }
+
+    @Test
+    public void clearZeroFillsTheBackingArray() throws ReflectiveOperationException {
+        SecureInputBuffer buffer = filled(8, "secret");
+        char[] chars = backing(buffer);
+        buffer.clear();
+        assertEquals(0, buffer.length());
+        assertArrayEquals(new char[8], chars);
+        assertArrayEquals(new char[8], backing(buffer));
+    }
+
+    @Test
+    public void maskedOutputNeverContainsPlaintext() {
+        String secret = "pa55word";
+        SecureInputBuffer buffer = filled(16, secret);
+        CharSequence masked = buffer.masked();
+        assertEquals(secret.length(), masked.length());
+        for (int i = 0; i < masked.length(); i++) {
+            assertEquals(SecureInputBuffer.MASK_CHAR, masked.charAt(i));
+        }
+        String shown = masked.toString() + masked.subSequence(2, 5);
+        for (int i = 0; i < secret.length(); i++) {
+            assertEquals(-1, shown.indexOf(secret.charAt(i)));
+        }
+
+        // 掩码只跟随长度变化
+        buffer.deleteLast();
+        assertEquals(secret.length() - 1, masked.length());
+        buffer.clear();
+        assertEquals("", masked.toString());
+    }
+}
@@ -0,0 +1,96 @@
+package com.kr.keyboard;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TextBatch 的本地单元测试，只覆盖合并逻辑，apply 依赖 Editable 的实现不在这里测试
+ */
+public class TextBatchTest {
+
+    @Test
+    public void insertsAccumulate() {
+        TextBatch batch = new TextBatch();
+        assertTrue(batch.isEmpty());
+        batch.insert("ab");
+        batch.insert("c");
+        assertEquals(3, batch.getInsertLength());
+        assertEquals(0, batch.getDeleteCount());
+        assertFalse(batch.isEmpty());
+    }
+
+    @Test
+    public void deleteCancelsPendingInsertFirst() {
+        TextBatch batch = new TextBatch();
+        batch.insert("abc");
+        batch.delete(2);
+        assertEquals(1, batch.getInsertLength());
+        assertEquals(0, batch.getDeleteCount());
+    }
+
+    @Test
+    public void deleteBeyondInsertDeletesBeforeCursor() {
+        TextBatch batch = new TextBatch();
+        batch.insert("ab");
+        batch.delete(5);
+        assertEquals(0, batch.getInsertLength());
+        assertEquals(3, batch.getDeleteCount());
+    }
+
+    @Test
+    public void deletesAccumulateAndInsertFollows() {
+        TextBatch batch = new TextBatch();
+        batch.delete(1);
+        batch.delete(2);
+        batch.insert("x");
+        assertEquals(3, batch.getDeleteCount());
+        assertEquals(1, batch.getInsertLength());
+        // 再次删除只抵消新的插入，不影响已经累计的删除
+        batch.delete(1);
+        assertEquals(3, batch.getDeleteCount());
+        assertEquals(0, batch.getInsertLength());
+    }
+
+    @Test
+    public void insertThenDeleteEverythingIsEmpty() {
+        TextBatch batch = new TextBatch();
+        batch.insert("ab");
+        batch.delete(2);
+        assertTrue(batch.isEmpty());
+    }
+
+    @Test
+    public void clearResets() {
+        TextBatch batch = new TextBatch();
+        batch.delete(2);
+        batch.insert("a");
+        batch.clear();
+        assertTrue(batch.isEmpty());
+        assertEquals(0, batch.getInsertLength());
+        assertEquals(0, batch.getDeleteCount());
+    }
+
+    @Test
+    public void wordLengthIncludesTrailingWhitespace() {
+        assertEquals(5, TextBatch.wordLengthBefore("hello world", 11));
+        assertEquals(7, TextBatch.wordLengthBefore("hello world  ", 13));
+        assertEquals(5, TextBatch.wordLengthBefore("hello world", 5));
+        assertEquals(3, TextBatch.wordLengthBefore("abc", 3));
+    }
+
+    @Test
+    public void punctuationIsItsOwnWord() {
+        assertEquals(1, TextBatch.wordLengthBefore("abc,", 4));
+        assertEquals(2, TextBatch.wordLengthBefore("abc. ", 5));
+        assertEquals(3, TextBatch.wordLengthBefore("a1b", 3));
+    }
+
+    @Test
+    public void nothingBeforeCursor() {
+        assertEquals(0, TextBatch.wordLengthBefore("abc", 0));
+        assertEquals(2, TextBatch.wordLengthBefore("  ", 2));
+    }
+}
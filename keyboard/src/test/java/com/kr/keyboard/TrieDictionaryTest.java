@@ -0,0 +1,106 @@
+package com.kr.keyboard;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * TrieDictionary 的本地单元测试，词典由 TrieDictionaryWriter 生成
+ */
+public class TrieDictionaryTest {
+
+    private static TrieDictionary dictionary(TrieDictionaryWriter writer) {
+        return new TrieDictionary(writer.write());
+    }
+
+    private static String[] suggest(TrieDictionary dictionary, String prefix, int max) {
+        String[] out = new String[max];
+        int count = dictionary.suggest(prefix, 0, prefix.length(), out);
+        return Arrays.copyOf(out, count);
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    @Test
+    public void returnsWordsByFrequency() {
+        TrieDictionaryWriter writer = new TrieDictionaryWriter();
+        writer.add("apple", 10);
+        writer.add("apply", 200);
+        writer.add("appetite", 50);
+        writer.add("apt", 100);
+        writer.add("banana", 255);
+        TrieDictionary dictionary = dictionary(writer);
+
+        assertEquals(Arrays.asList("apply", "apt", "appetite", "apple"),
+                Arrays.asList(suggest(dictionary, "ap", 8)));
+        assertEquals(Arrays.asList("apply", "apt"), Arrays.asList(suggest(dictionary, "ap", 2)));
+        assertEquals(0, suggest(dictionary, "c", 8).length);
+    }
+
+    @Test
+    public void matchesPrefixIgnoringCaseAndKeepsTypedPrefix() {
+        TrieDictionaryWriter writer = new TrieDictionaryWriter();
+        writer.add("Hello", 20);
+        writer.add("help", 10);
+        TrieDictionary dictionary = dictionary(writer);
+
+        assertEquals(Arrays.asList("HEllo", "HElp"), Arrays.asList(suggest(dictionary, "HE", 8)));
+        assertEquals(Arrays.asList("hello", "help"), Arrays.asList(suggest(dictionary, "he", 8)));
+
+        String text = "say hEl";
+        String[] out = new String[8];
+        int count = dictionary.suggest(text, 4, text.length(), out);
+        assertEquals(Arrays.asList("hEllo", "hElp"), Arrays.asList(Arrays.copyOf(out, count)));
+    }
+
+    @Test
+    public void doesNotEchoTheTypedWord() {
+        TrieDictionaryWriter writer = new TrieDictionaryWriter();
+        writer.add("app", 255);
+        writer.add("apple", 10);
+        writer.add("apps", 20);
+        TrieDictionary dictionary = dictionary(writer);
+
+        assertEquals(Arrays.asList("apps", "apple"), Arrays.asList(suggest(dictionary, "app", 8)));
+        assertEquals(Arrays.asList("App", "Apps", "Apple"), Arrays.asList(suggest(dictionary, "Ap", 8)));
+        assertEquals(0, suggest(dictionary, "apple", 8).length);
+    }
+
+    @Test
+    public void ignoresPrefixesOfMaxWordLength() {
+        String longWord = repeat('a', TrieDictionary.MAX_WORD_LENGTH);
+        TrieDictionaryWriter writer = new TrieDictionaryWriter();
+        writer.add(longWord + "b", 10);
+        TrieDictionary dictionary = dictionary(writer);
+
+        String longest = repeat('a', TrieDictionary.MAX_WORD_LENGTH - 1);
+        assertEquals(Arrays.asList(longWord + "b"), Arrays.asList(suggest(dictionary, longest, 8)));
+        assertEquals(0, suggest(dictionary, longWord, 8).length);
+    }
+
+    @Test
+    public void stopsExpandingAtMaxEntries() {
+        // 前缀 "a" 展开后加入 1 + 1 + siblings 个候选，"a!" 词频最高并且字符排在最前
+        TrieDictionaryWriter writer = new TrieDictionaryWriter();
+        writer.add("a!", 255);
+        for (int i = 0; i < TrieDictionary.MAX_ENTRIES - 3; i++) {
+            writer.add("a" + (char) (0x4E00 + i), 1);
+        }
+        assertEquals(Arrays.asList("a!"), Arrays.asList(suggest(dictionary(writer), "a", 1)));
+
+        // 候选已满时放弃剩余分支而不是越界，之后的查找不受影响
+        for (int i = TrieDictionary.MAX_ENTRIES - 3; i < TrieDictionary.MAX_ENTRIES; i++) {
+            writer.add("a" + (char) (0x4E00 + i), 1);
+        }
+        writer.add("b!", 20);
+        TrieDictionary dictionary = dictionary(writer);
+        assertEquals(0, suggest(dictionary, "a", 8).length);
+        assertEquals(Arrays.asList("b!"), Arrays.asList(suggest(dictionary, "b", 8)));
+    }
+}
@@ -0,0 +1,89 @@
+package com.kr.keyboard;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 生成 {@link TrieDictionary} 读取的二进制词典，和读取代码一起维护文件格式
+ * 放在 test 源码中，供单元测试、benchmark-jvm 的词典生成和基准测试使用，不打包进 keyboard 模块
+ * 子节点先于父节点写入，根节点最后写入
+ */
+final class TrieDictionaryWriter {
+
+    static final int MAX_FREQUENCY = 255;
+
+    private static final class Node {
+        final TreeMap<Character, Node> children = new TreeMap<>();
+        int frequency;
+        int best;
+        int offset;
+    }
+
+    private final Node mRoot = new Node();
+    private int mNodeCount = 1;
+
+    /**
+     * @param word      单词，按小写保存
+     * @param frequency 1 - {@link #MAX_FREQUENCY}，越大越优先，重复添加时取较大的值
+     */
+    void add(String word, int frequency) {
+        if (word.isEmpty()) {
+            throw new IllegalArgumentException("empty word");
+        }
+        if (frequency < 1 || frequency > MAX_FREQUENCY) {
+            throw new IllegalArgumentException("frequency: " + frequency);
+        }
+        Node node = mRoot;
+        for (int i = 0; i < word.length(); i++) {
+            char c = Character.toLowerCase(word.charAt(i));
+            Node child = node.children.get(c);
+            if (child == null) {
+                child = new Node();
+                node.children.put(c, child);
+                mNodeCount++;
+            }
+            node = child;
+        }
+        node.frequency = Math.max(node.frequency, frequency);
+    }
+
+    ByteBuffer write() {
+        List<Node> order = new ArrayList<>(mNodeCount);
+        int size = layout(mRoot, order, TrieDictionary.HEADER_SIZE);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(TrieDictionary.MAGIC);
+        buffer.putInt(TrieDictionary.VERSION);
+        buffer.putInt(order.size());
+        buffer.putInt(mRoot.offset);
+        for (Node node : order) {
+            buffer.putShort((short) node.children.size());
+            buffer.put((byte) node.frequency);
+            buffer.put((byte) node.best);
+            for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+                buffer.putChar(child.getKey());
+                buffer.putInt(child.getValue().offset);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 后序计算每个节点的偏移和子树最大词频
+     *
+     * @return 写入这个子树后的偏移
+     */
+    private static int layout(Node node, List<Node> order, int offset) {
+        node.best = node.frequency;
+        for (Node child : node.children.values()) {
+            offset = layout(child, order, offset);
+            node.best = Math.max(node.best, child.best);
+        }
+        node.offset = offset;
+        order.add(node);
+        return offset + TrieDictionary.NODE_HEADER_SIZE + node.children.size() * TrieDictionary.CHILD_SIZE;
+    }
+}